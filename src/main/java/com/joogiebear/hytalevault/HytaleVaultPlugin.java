@@ -5,8 +5,14 @@ import com.hypixel.hytale.server.core.plugin.JavaPluginInit;
 import com.joogiebear.hytalevault.commands.VaultAdminCommand;
 import com.joogiebear.hytalevault.commands.VaultCommand;
 import com.joogiebear.hytalevault.commands.VaultInfoCommand;
+import com.joogiebear.hytalevault.data.storage.BinaryStorage;
+import com.joogiebear.hytalevault.data.storage.FsyncPolicy;
 import com.joogiebear.hytalevault.data.storage.JsonStorage;
+import com.joogiebear.hytalevault.data.storage.SegmentStorage;
+import com.joogiebear.hytalevault.data.storage.SlotJournal;
+import com.joogiebear.hytalevault.data.storage.SqliteStorage;
 import com.joogiebear.hytalevault.data.storage.StorageBackend;
+import com.joogiebear.hytalevault.data.storage.StorageExecutor;
 import com.joogiebear.hytalevault.listeners.PlayerListener;
 import com.joogiebear.hytalevault.managers.ConfigManager;
 import com.joogiebear.hytalevault.managers.VaultManager;
@@ -32,10 +38,13 @@ public class HytaleVaultPlugin extends JavaPlugin {
     private ConfigManager configManager;
     private VaultManager vaultManager;
     private StorageBackend storageBackend;
+    private StorageExecutor storageExecutor;
+    private SlotJournal slotJournal;
     private VaultCommand vaultCommand;
     private PlayerListener playerListener;
     private ScheduledExecutorService autoSaveScheduler;
     private ScheduledFuture<?> autoSaveTask;
+    private ScheduledFuture<?> journalCompactTask;
 
     public HytaleVaultPlugin(@Nonnull JavaPluginInit init) {
         super(init);
@@ -71,18 +80,31 @@ public class HytaleVaultPlugin extends JavaPlugin {
     protected void start() {
         LOGGER.info("HytaleVault is starting...");
 
+        // Start the dedicated storage I/O executor (keeps blocking I/O off the common pool)
+        storageExecutor = new StorageExecutor(
+                StorageExecutor.Mode.fromString(configManager.getExecutorMode()),
+                configManager.getExecutorThreads(),
+                configManager.getExecutorQueueCapacity()
+        );
+        storageExecutor.start();
+
         // Initialize storage backend
         Path dataPath = getPluginDataPath().resolve(configManager.getStorageDirectory());
-        storageBackend = new JsonStorage(dataPath);
+        storageBackend = createStorageBackend(configManager.getStorageType(), dataPath);
         storageBackend.initialize();
 
+        // Initialize slot journal (write-behind log of individual slot changes)
+        slotJournal = new SlotJournal(dataPath.resolve("journal"));
+        slotJournal.initialize();
+
         // Initialize vault manager
-        vaultManager = new VaultManager(this, storageBackend);
+        vaultManager = new VaultManager(this, storageBackend, slotJournal);
+
+        autoSaveScheduler = Executors.newSingleThreadScheduledExecutor();
 
         // Start auto-save task
         int saveInterval = configManager.getSaveIntervalSeconds();
         if (saveInterval > 0) {
-            autoSaveScheduler = Executors.newSingleThreadScheduledExecutor();
             autoSaveTask = autoSaveScheduler.scheduleAtFixedRate(
                     this::autoSave,
                     saveInterval,
@@ -92,19 +114,66 @@ public class HytaleVaultPlugin extends JavaPlugin {
             LOGGER.info("Auto-save scheduled every " + saveInterval + " seconds");
         }
 
+        // Start background journal compactor
+        int compactInterval = Math.max(1, configManager.getJournalCompactSeconds());
+        journalCompactTask = autoSaveScheduler.scheduleWithFixedDelay(
+                this::compactJournals,
+                compactInterval,
+                compactInterval,
+                TimeUnit.SECONDS
+        );
+
         LOGGER.info("HytaleVault has been enabled!");
     }
 
+    /**
+     * Create the storage backend selected by storage.type.
+     */
+    private StorageBackend createStorageBackend(String type, Path dataPath) {
+        FsyncPolicy fsyncPolicy = FsyncPolicy.fromString(configManager.getFsyncPolicy());
+        long fsyncInterval = fsyncPolicy == FsyncPolicy.GROUP
+                ? configManager.getGroupCommitWindowMillis()
+                : configManager.getFsyncIntervalMillis();
+        switch (type.toLowerCase()) {
+            case "binary":
+                LOGGER.info("Using binary storage backend");
+                return new BinaryStorage(dataPath, storageExecutor, fsyncPolicy, fsyncInterval);
+            case "sqlite":
+                return new SqliteStorage(dataPath, storageExecutor, fsyncPolicy);
+            case "segment":
+                return new SegmentStorage(dataPath, storageExecutor, fsyncPolicy, configManager.getFsyncIntervalMillis(),
+                        configManager.getSegmentSizeMegabytes(), configManager.getSegmentCompactIntervalSeconds());
+            case "json":
+                return new JsonStorage(dataPath, storageExecutor, fsyncPolicy, fsyncInterval);
+            default:
+                LOGGER.warning("Unknown storage type '" + type + "', falling back to json");
+                return new JsonStorage(dataPath, storageExecutor, fsyncPolicy, fsyncInterval);
+        }
+    }
+
     /**
      * Periodic auto-save of all loaded vaults.
      */
     private void autoSave() {
         if (vaultManager != null) {
-            vaultManager.saveAll();
+            // Bound the run by the interval so auto-saves never overlap; queued behind player loads
+            try (StorageExecutor.Submission ignored = storageExecutor.submitting(StorageExecutor.Priority.BACKGROUND)) {
+                vaultManager.saveAll(configManager.getSaveIntervalSeconds() * 1000L, false);
+                vaultManager.getCache().retryFailedFlushes();
+            }
             LOGGER.fine("Auto-save completed");
         }
     }
 
+    /**
+     * Periodic fold of slot journals into vault files.
+     */
+    private void compactJournals() {
+        if (vaultManager != null) {
+            vaultManager.compactJournals();
+        }
+    }
+
     @Override
     protected void shutdown() {
         LOGGER.info("HytaleVault is shutting down...");
@@ -113,6 +182,9 @@ public class HytaleVaultPlugin extends JavaPlugin {
         if (autoSaveTask != null) {
             autoSaveTask.cancel(false);
         }
+        if (journalCompactTask != null) {
+            journalCompactTask.cancel(false);
+        }
 
         // Shutdown the scheduler properly
         if (autoSaveScheduler != null) {
@@ -133,9 +205,22 @@ public class HytaleVaultPlugin extends JavaPlugin {
             vaultUI.closeAll();
         }
 
-        // Save all loaded vaults
+        // Save all loaded vaults and stop the save scheduler
         if (vaultManager != null) {
-            vaultManager.saveAll();
+            vaultManager.shutdown();
+        }
+
+        // Drain queued storage I/O while the journal and backend are still open;
+        // anything submitted from here on runs on this thread
+        if (storageExecutor != null) {
+            // The emergency dump only covers vaults saveAll could not reach by its deadline.
+            // Other saves dropped here (compaction, eviction, disconnect) are not dumped;
+            // their changes survive only in the slot journal, replayed on the next load
+            storageExecutor.shutdown(10, TimeUnit.SECONDS);
+        }
+
+        if (slotJournal != null) {
+            slotJournal.shutdown();
         }
 
         if (storageBackend != null) {
@@ -173,6 +258,13 @@ public class HytaleVaultPlugin extends JavaPlugin {
         return storageBackend;
     }
 
+    /**
+     * Get the storage I/O executor.
+     */
+    public StorageExecutor getStorageExecutor() {
+        return storageExecutor;
+    }
+
     /**
      * Get the vault command.
      */
@@ -200,6 +292,9 @@ public class HytaleVaultPlugin extends JavaPlugin {
      */
     public void reload() {
         configManager.loadConfig();
+        if (vaultManager != null) {
+            vaultManager.invalidateAllEntitlements();
+        }
         LOGGER.info("Configuration reloaded.");
     }
 }
@@ -69,13 +69,17 @@ public class VaultAPI {
         });
     }
 
+    /**
+     * Set an item in a vault slot. The change is journaled like a UI edit,
+     * so it survives a crash before the next save.
+     */
     public CompletableFuture<Boolean> setItem(UUID playerUuid, int vaultNumber, int slot, ItemStack item) {
         int slotsPerVault = getSlotsPerVault();
         return getVault(playerUuid).thenApply(vault -> {
             VaultPage vaultData = vault.getOrCreateVault(vaultNumber, slotsPerVault);
-            if (vaultData == null) return false;
+            if (vaultData == null || slot < 0 || slot >= vaultData.getSlots()) return false;
             vaultData.setItem(slot, item);
-            vault.markDirty();
+            HytaleVaultPlugin.getInstance().getVaultManager().recordSlotChange(vault, vaultNumber, slot, item);
             return true;
         });
     }
@@ -100,6 +104,17 @@ public class VaultAPI {
         return HytaleVaultPlugin.getInstance().getConfigManager().getSlotsPerVault();
     }
 
+    /**
+     * Tell HytaleVault a player's permissions changed.
+     * Vault and slot entitlements are cached; permission plugins can call this
+     * so the change applies immediately rather than after the cache TTL.
+     *
+     * @param playerUuid The player whose permissions changed
+     */
+    public void invalidatePermissions(UUID playerUuid) {
+        HytaleVaultPlugin.getInstance().getVaultManager().invalidateEntitlements(playerUuid);
+    }
+
     /**
      * Get the number of slots a player has based on their slot tier permissions.
      * Returns the global slotsPerVault if no slot tiers are configured.
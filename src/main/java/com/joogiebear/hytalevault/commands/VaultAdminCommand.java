@@ -11,9 +11,12 @@ import com.hypixel.hytale.server.core.universe.PlayerRef;
 import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 import com.joogiebear.hytalevault.HytaleVaultPlugin;
+import com.joogiebear.hytalevault.data.storage.StorageExecutor;
 import com.joogiebear.hytalevault.gui.AdminPanelPage;
+import com.joogiebear.hytalevault.managers.VaultManager;
 import com.joogiebear.hytalevault.util.MessageUtil;
 
+import java.time.Instant;
 import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 
@@ -40,6 +43,7 @@ public class VaultAdminCommand extends AbstractCommand {
         // Add subcommands
         addSubCommand(new ClearSubCommand(plugin));
         addSubCommand(new ReloadSubCommand(plugin));
+        addSubCommand(new StatsSubCommand(plugin));
     }
 
     @Override
@@ -68,6 +72,7 @@ public class VaultAdminCommand extends AbstractCommand {
         ctx.sendMessage(MessageUtil.info("HytaleVault Admin Commands:"));
         ctx.sendMessage(MessageUtil.of("/vaultadmin clear <player> - Clear a player's vaults"));
         ctx.sendMessage(MessageUtil.of("/vaultadmin reload - Reload configuration"));
+        ctx.sendMessage(MessageUtil.of("/vaultadmin stats - Show vault storage statistics"));
         ctx.sendMessage(MessageUtil.of(""));
         ctx.sendMessage(MessageUtil.info("Vault access is controlled by permissions:"));
         ctx.sendMessage(MessageUtil.of("  lp user <player> permission set hytalevault.vault.<number>"));
@@ -117,4 +122,47 @@ public class VaultAdminCommand extends AbstractCommand {
             return CompletableFuture.completedFuture(null);
         }
     }
+
+    // Subcommand: stats
+    private static class StatsSubCommand extends AbstractCommand {
+        private final HytaleVaultPlugin plugin;
+
+        public StatsSubCommand(HytaleVaultPlugin plugin) {
+            super("stats", "Show vault storage statistics");
+            this.plugin = plugin;
+        }
+
+        @Override
+        protected CompletableFuture<Void> execute(CommandContext ctx) {
+            // Served from the storage index; never opens player files
+            return plugin.getStorageBackend().getStats().thenAccept(stats -> {
+                ctx.sendMessage(MessageUtil.info("HytaleVault Storage:"));
+                ctx.sendMessage(MessageUtil.of("Players: " + stats.players()));
+                ctx.sendMessage(MessageUtil.of("Stored items: " + stats.totalItems()));
+                ctx.sendMessage(MessageUtil.of(String.format("Size on disk: %.1f MB", stats.totalBytes() / (1024.0 * 1024.0))));
+                if (stats.lastModified() > 0) {
+                    ctx.sendMessage(MessageUtil.of("Last save: " + Instant.ofEpochMilli(stats.lastModified())));
+                }
+                ctx.sendMessage(MessageUtil.of("Loaded vaults: " + plugin.getVaultManager().getCache().getPinnedCount()
+                        + " online, " + plugin.getVaultManager().getCache().getOfflineCount() + " cached"));
+                StorageExecutor executor = plugin.getStorageExecutor();
+                ctx.sendMessage(MessageUtil.of("I/O queue: " + executor.getQueueDepth(StorageExecutor.Priority.LOGIN) + " login, "
+                        + executor.getQueueDepth(StorageExecutor.Priority.INTERACTIVE) + " interactive, "
+                        + executor.getQueueDepth(StorageExecutor.Priority.BACKGROUND) + " background"));
+                VaultManager vaultManager = plugin.getVaultManager();
+                if (vaultManager.getFirstOpenCount() > 0) {
+                    ctx.sendMessage(MessageUtil.of("Join to first open: " + vaultManager.getAverageFirstOpenMillis()
+                            + " ms avg, " + vaultManager.getMaxFirstOpenMillis() + " ms max ("
+                            + vaultManager.getFirstOpenCount() + " players)"));
+                }
+                if (!stats.complete()) {
+                    ctx.sendMessage(MessageUtil.colored("Index is still being rebuilt; totals are partial.", "#FFAA00"));
+                }
+            }).exceptionally(error -> {
+                ctx.sendMessage(MessageUtil.error("Failed to read storage statistics."));
+                LOGGER.warning("Failed to read storage statistics: " + error.getMessage());
+                return null;
+            });
+        }
+    }
 }
@@ -80,6 +80,7 @@ public class VaultCommand extends AbstractCommand {
                     playerRef, vault, vaultUI, maxAccessibleVault, plugin.getVaultManager(), player
             );
             player.getPageManager().openCustomPage(ref, store, selectorPage);
+            plugin.getVaultManager().recordVaultOpened(player.getUuid());
         }, world).exceptionally(e -> {
             ctx.sendMessage(MessageUtil.error("Failed to open vault selector. Please try again."));
             LOGGER.warning("Failed to open vault selector for " + player.getDisplayName() + ": " + e.getMessage());
@@ -142,6 +143,7 @@ public class VaultCommand extends AbstractCommand {
                 if (playerRef == null) return;
 
                 vaultUI.openVault(player, ref, store, playerRef, vault, vaultNumber);
+                plugin.getVaultManager().recordVaultOpened(player.getUuid());
             }, world).exceptionally(e -> {
                 ctx.sendMessage(MessageUtil.error("Failed to load vault. Please try again."));
                 LOG.warning("Failed to load vault for " + player.getDisplayName() + ": " + e.getMessage());
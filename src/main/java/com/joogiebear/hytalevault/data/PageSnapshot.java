@@ -0,0 +1,79 @@
+package com.joogiebear.hytalevault.data;
+
+import com.hypixel.hytale.server.core.inventory.ItemStack;
+
+import java.util.BitSet;
+
+/**
+ * Immutable point-in-time copy of a {@link VaultPage}.
+ * Taken under the page's read lock in O(slots) reference copies, then
+ * serialized off-thread without holding any lock.
+ */
+public final class PageSnapshot {
+
+    private final int vaultNumber;
+    private final int slots;
+    private final ItemStack[] items;
+    private final BitSet occupied;
+    private final int itemCount;
+    private final boolean dirty;
+    private final long generation;
+
+    PageSnapshot(int vaultNumber, int slots, ItemStack[] items, BitSet occupied,
+                 int itemCount, boolean dirty, long generation) {
+        this.vaultNumber = vaultNumber;
+        this.slots = slots;
+        this.items = items;
+        this.occupied = occupied;
+        this.itemCount = itemCount;
+        this.dirty = dirty;
+        this.generation = generation;
+    }
+
+    public int getVaultNumber() {
+        return vaultNumber;
+    }
+
+    public int getSlots() {
+        return slots;
+    }
+
+    public ItemStack getItem(int slot) {
+        if (slot < 0 || slot >= items.length) {
+            return null;
+        }
+        return items[slot];
+    }
+
+    /**
+     * Find the next occupied slot.
+     *
+     * @param fromSlot The slot to start searching at (inclusive)
+     * @return The next occupied slot, or -1 if there is none
+     */
+    public int nextOccupiedSlot(int fromSlot) {
+        return occupied.nextSetBit(fromSlot);
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public boolean isEmpty() {
+        return itemCount == 0;
+    }
+
+    /**
+     * Whether the page had unsaved changes when the snapshot was taken.
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * The page's modification count when the snapshot was taken.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+}
@@ -1,23 +1,41 @@
 package com.joogiebear.hytalevault.data;
 
 import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents a player's complete vault storage.
  * Vault access is controlled by permissions, not unlock counts.
+ *
+ * Dirty state is tracked per page: storage backends can ask for the pages
+ * changed since the last successful save and persist only those. The
+ * vault-level flag marks every page as needing a rewrite.
+ *
+ * Pages live in an array indexed by vault number and are allocated on first
+ * use. Pages report item count changes back so the total is kept running.
+ *
+ * Thread-safe. The page table is copy-on-write (pages are added rarely and
+ * read constantly), and each {@link VaultPage} guards its own slots, so
+ * edits to different pages never contend.
  */
 public class PlayerVault {
 
+    private static final int DEFAULT_CAPACITY = 9;
+
     private final UUID playerUuid;
-    private final Map<Integer, VaultPage> vaults;
+    private volatile VaultPage[] vaults; // index = vault number - 1; replaced, never mutated, under this
+    private volatile int pageCount;
     private final int slotsPerVault;
-    private boolean dirty;
+    private final AtomicInteger totalItemCount;
+    private volatile boolean dirty;
+    private final AtomicLong structuralModCount;
 
     /**
      * Create a new player vault.
@@ -27,9 +45,11 @@ public class PlayerVault {
      */
     public PlayerVault(UUID playerUuid, int slotsPerVault) {
         this.playerUuid = playerUuid;
-        this.vaults = new HashMap<>();
+        this.vaults = new VaultPage[DEFAULT_CAPACITY];
         this.slotsPerVault = slotsPerVault;
+        this.totalItemCount = new AtomicInteger();
         this.dirty = false;
+        this.structuralModCount = new AtomicLong();
     }
 
     public UUID getPlayerUuid() {
@@ -40,16 +60,108 @@ public class PlayerVault {
         return slotsPerVault;
     }
 
+    /**
+     * Size the page table for the configured number of vaults.
+     * Pages are still only allocated when first used.
+     *
+     * @param maxVaults The highest vault number expected
+     */
+    public synchronized void ensureCapacity(int maxVaults) {
+        if (maxVaults > vaults.length) {
+            vaults = Arrays.copyOf(vaults, maxVaults);
+        }
+    }
+
+    /**
+     * Check whether anything changed since the last successful save.
+     */
     public boolean isDirty() {
-        return dirty;
+        if (dirty) {
+            return true;
+        }
+        for (VaultPage vault : vaults) {
+            if (vault != null && vault.isDirty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the pages that changed since the last successful save.
+     * Every page is returned when the whole vault is marked dirty.
+     * Pages that were emptied are included so backends can delete them.
+     *
+     * @return The dirty pages
+     */
+    public List<VaultPage> getDirtyPages() {
+        List<VaultPage> dirtyPages = new ArrayList<>();
+        for (VaultPage vault : vaults) {
+            if (vault != null && (dirty || vault.isDirty())) {
+                dirtyPages.add(vault);
+            }
+        }
+        return dirtyPages;
     }
 
     public void markClean() {
         this.dirty = false;
+        for (VaultPage vault : vaults) {
+            if (vault != null) {
+                vault.markClean();
+            }
+        }
+    }
+
+    /**
+     * Mark clean exactly what a snapshot captured. Pages edited after the
+     * snapshot was taken stay dirty, so edits made during a save are never lost.
+     *
+     * @param snapshot The snapshot that was successfully persisted
+     */
+    public void markClean(VaultSnapshot snapshot) {
+        synchronized (this) {
+            if (structuralModCount.get() == snapshot.getStructuralGeneration()) {
+                dirty = false;
+            }
+        }
+        for (PageSnapshot pageSnapshot : snapshot.getPages()) {
+            VaultPage vault = getVault(pageSnapshot.getVaultNumber());
+            if (vault != null) {
+                vault.markClean(pageSnapshot.getGeneration());
+            }
+        }
+    }
+
+    /**
+     * Take a point-in-time copy for serialization. Each page is copied under its
+     * own read lock, so this never blocks for longer than a slot array copy.
+     *
+     * @return The snapshot
+     */
+    public VaultSnapshot snapshot() {
+        long structuralGeneration;
+        boolean full;
+        synchronized (this) {
+            structuralGeneration = structuralModCount.get();
+            full = dirty;
+        }
+        VaultPage[] table = vaults;
+        List<PageSnapshot> pages = new ArrayList<>(pageCount);
+        for (VaultPage vault : table) {
+            if (vault != null) {
+                pages.add(vault.snapshot(full));
+            }
+        }
+        return new VaultSnapshot(playerUuid, slotsPerVault, pages, structuralGeneration);
     }
 
-    public void markDirty() {
+    /**
+     * Mark the whole vault as needing a rewrite (e.g. after a format migration).
+     */
+    public synchronized void markDirty() {
         this.dirty = true;
+        structuralModCount.incrementAndGet();
     }
 
     /**
@@ -64,13 +176,19 @@ public class PlayerVault {
         if (vaultNumber < 1) {
             return null;
         }
-        VaultPage vault = vaults.get(vaultNumber);
-        if (vault == null) {
-            vault = new VaultPage(vaultNumber, slotsPerVault);
-            vaults.put(vaultNumber, vault);
-            markDirty();
+        VaultPage vault = getVault(vaultNumber);
+        if (vault != null) {
+            return vault;
+        }
+        synchronized (this) {
+            vault = getVault(vaultNumber);
+            if (vault == null) {
+                // A new page is empty; it becomes dirty with its first item
+                vault = new VaultPage(vaultNumber, slotsPerVault);
+                addVault(vault);
+            }
+            return vault;
         }
-        return vault;
     }
 
     /**
@@ -80,20 +198,75 @@ public class PlayerVault {
      * @return The vault page, or null if not created yet
      */
     public VaultPage getVault(int vaultNumber) {
-        if (vaultNumber < 1) {
+        VaultPage[] table = vaults;
+        if (vaultNumber < 1 || vaultNumber > table.length) {
             return null;
         }
-        return vaults.get(vaultNumber);
+        return table[vaultNumber - 1];
+    }
+
+    /**
+     * Get all vault pages that have been created.
+     *
+     * @return The vault pages in vault number order
+     */
+    public List<VaultPage> getVaultPages() {
+        List<VaultPage> pages = new ArrayList<>(pageCount);
+        for (VaultPage vault : vaults) {
+            if (vault != null) {
+                pages.add(vault);
+            }
+        }
+        return pages;
+    }
+
+    /**
+     * Get the number of pages that have been created.
+     */
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * Add a loaded vault page, replacing any page with the same number.
+     * Used by storage backends when reading vault data.
+     *
+     * @param vault The vault page
+     */
+    public synchronized void addVault(VaultPage vault) {
+        int index = vault.getVaultNumber() - 1;
+        if (index < 0) {
+            return;
+        }
+        VaultPage[] table = Arrays.copyOf(vaults, Math.max(vaults.length, index + 1));
+        VaultPage previous = table[index];
+        if (previous != null) {
+            previous.detach();
+            totalItemCount.addAndGet(-previous.getItemCount());
+        } else {
+            pageCount++;
+        }
+        table[index] = vault;
+        vault.writeLock().lock();
+        try {
+            vault.attach(this);
+            totalItemCount.addAndGet(vault.getItemCount());
+        } finally {
+            vault.writeLock().unlock();
+        }
+        structuralModCount.incrementAndGet();
+        vaults = table;
     }
 
     /**
      * Clear all items from all vaults.
      */
     public void clearAll() {
-        for (VaultPage vault : vaults.values()) {
-            vault.clear();
+        for (VaultPage vault : vaults) {
+            if (vault != null) {
+                vault.clear();
+            }
         }
-        markDirty();
     }
 
     /**
@@ -102,9 +275,14 @@ public class PlayerVault {
      * @return Total item count
      */
     public int getTotalItemCount() {
-        return vaults.values().stream()
-                .mapToInt(VaultPage::getItemCount)
-                .sum();
+        return totalItemCount.get();
+    }
+
+    /**
+     * Called by an attached page when its item count changes.
+     */
+    void onItemCountChanged(int delta) {
+        totalItemCount.addAndGet(delta);
     }
 
     /**
@@ -118,8 +296,8 @@ public class PlayerVault {
         json.addProperty("slotsPerVault", slotsPerVault);
 
         JsonArray vaultsArray = new JsonArray();
-        for (VaultPage vault : vaults.values()) {
-            if (!vault.isEmpty()) {
+        for (VaultPage vault : vaults) {
+            if (vault != null && !vault.isEmpty()) {
                 vaultsArray.add(vault.serialize());
             }
         }
@@ -127,36 +305,4 @@ public class PlayerVault {
 
         return json;
     }
-
-    /**
-     * Deserialize a player vault from JSON.
-     * Supports legacy keys for backward compatibility.
-     *
-     * @param json          The JSON object
-     * @param slotsPerVault Slots per vault (used if not in JSON)
-     * @return The deserialized vault
-     */
-    public static PlayerVault deserialize(JsonObject json, int slotsPerVault) {
-        UUID playerUuid = UUID.fromString(json.get("playerUuid").getAsString());
-
-        int slots = json.has("slotsPerVault")
-                ? json.get("slotsPerVault").getAsInt()
-                : json.has("slotsPerPage")
-                        ? json.get("slotsPerPage").getAsInt()
-                        : slotsPerVault;
-
-        PlayerVault playerVault = new PlayerVault(playerUuid, slots);
-
-        // Support both "vaults" and legacy "pages" array keys
-        String arrayKey = json.has("vaults") ? "vaults" : "pages";
-        if (json.has(arrayKey)) {
-            JsonArray vaultsArray = json.getAsJsonArray(arrayKey);
-            for (JsonElement element : vaultsArray) {
-                VaultPage vault = VaultPage.deserialize(element.getAsJsonObject());
-                playerVault.vaults.put(vault.getVaultNumber(), vault);
-            }
-        }
-
-        return playerVault;
-    }
 }
@@ -1,23 +1,43 @@
 package com.joogiebear.hytalevault.data;
 
 import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.hypixel.hytale.server.core.inventory.ItemStack;
-import org.bson.BsonDocument;
+import com.joogiebear.hytalevault.util.IntObjConsumer;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Represents a single vault's item storage.
- * Each vault contains a fixed number of item slots.
+ * Each vault contains a fixed number of item slots, stored in a dense array
+ * with an occupancy bitset so iteration and lookups never box slot indexes.
+ *
+ * Tracks which slots changed since the page was last persisted, and a
+ * modification count so a save can tell whether the page changed while
+ * it was being written.
+ *
+ * Thread-safe. Each page has its own read/write lock, so the world thread,
+ * API callers on storage threads and admin actions can touch different
+ * pages of the same vault without contending. Code that reads several slots
+ * as one consistent image (serializers) holds {@link #readLock()}.
  */
 public class VaultPage {
 
     private final int vaultNumber;
     private final int slots;
-    private final Map<Integer, ItemStack> items;
+    private final ItemStack[] items;
+    private final BitSet occupied;
+    private final BitSet dirtySlots;
+    private final ReentrantReadWriteLock lock;
+    private volatile int itemCount;
+    private volatile PlayerVault owner;
+    private volatile boolean dirty;
+    private volatile long modCount;
 
     /**
      * Create a new vault storage.
@@ -28,7 +48,10 @@ public class VaultPage {
     public VaultPage(int vaultNumber, int slots) {
         this.vaultNumber = vaultNumber;
         this.slots = slots;
-        this.items = new HashMap<>();
+        this.items = new ItemStack[Math.max(0, slots)];
+        this.occupied = new BitSet(slots);
+        this.dirtySlots = new BitSet(slots);
+        this.lock = new ReentrantReadWriteLock();
     }
 
     public int getVaultNumber() {
@@ -43,17 +66,39 @@ public class VaultPage {
         if (slot < 0 || slot >= slots) {
             return null;
         }
-        return items.get(slot);
+        lock.readLock().lock();
+        try {
+            return items[slot];
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     public void setItem(int slot, ItemStack item) {
+        replaceItem(slot, item);
+    }
+
+    /**
+     * Set a slot and return what it held before.
+     *
+     * @param slot The slot index
+     * @param item The new item (null or empty clears the slot)
+     * @return The previous item, or null
+     */
+    public ItemStack replaceItem(int slot, ItemStack item) {
         if (slot < 0 || slot >= slots) {
-            return;
+            return null;
         }
-        if (item == null || item.isEmpty()) {
-            items.remove(slot);
-        } else {
-            items.put(slot, item);
+        lock.writeLock().lock();
+        try {
+            ItemStack previous = items[slot];
+            store(slot, item);
+            dirtySlots.set(slot);
+            dirty = true;
+            modCount++;
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
@@ -62,24 +107,204 @@ public class VaultPage {
     }
 
     public void clear() {
-        items.clear();
+        lock.writeLock().lock();
+        try {
+            dirtySlots.or(occupied);
+            occupied.clear();
+            Arrays.fill(items, null);
+            adjustItemCount(-itemCount);
+            dirty = true;
+            modCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     public boolean isEmpty(int slot) {
-        ItemStack item = items.get(slot);
-        return item == null || item.isEmpty();
+        return getItem(slot) == null;
     }
 
     public boolean isEmpty() {
-        return items.isEmpty();
+        return itemCount == 0;
     }
 
+    /**
+     * Copy the stored items out into a map keyed by slot.
+     * Prefer {@link #forEachOccupied} or {@link #nextOccupiedSlot} for iteration.
+     *
+     * @return A new map of slot to item
+     */
     public Map<Integer, ItemStack> getItems() {
-        return new HashMap<>(items);
+        Map<Integer, ItemStack> copy = new HashMap<>();
+        forEachOccupied(copy::put);
+        return copy;
+    }
+
+    /**
+     * Visit every occupied slot in ascending order without allocating.
+     *
+     * @param consumer Receives the slot index and its item
+     */
+    public void forEachOccupied(IntObjConsumer<ItemStack> consumer) {
+        lock.readLock().lock();
+        try {
+            for (int slot = occupied.nextSetBit(0); slot >= 0; slot = occupied.nextSetBit(slot + 1)) {
+                consumer.accept(slot, items[slot]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the next occupied slot, for loops that need to throw checked exceptions.
+     * Hold {@link #readLock()} across the loop for a consistent view.
+     *
+     * @param fromSlot The slot to start searching at (inclusive)
+     * @return The next occupied slot, or -1 if there is none
+     */
+    public int nextOccupiedSlot(int fromSlot) {
+        lock.readLock().lock();
+        try {
+            return occupied.nextSetBit(fromSlot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the lock that keeps writers out while several slots are read together.
+     * Reentrant, so the single-slot accessors can be used while holding it.
+     */
+    public Lock readLock() {
+        return lock.readLock();
     }
 
     public int getItemCount() {
-        return items.size();
+        return itemCount;
+    }
+
+    /**
+     * Check whether this page changed since it was last persisted.
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Get the slots that changed since this page was last persisted.
+     *
+     * @return A copy of the dirty-slot set
+     */
+    public BitSet getDirtySlots() {
+        lock.readLock().lock();
+        try {
+            return (BitSet) dirtySlots.clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Flag every slot as changed, forcing the whole page to be rewritten.
+     */
+    public void markDirty() {
+        lock.writeLock().lock();
+        try {
+            dirtySlots.set(0, slots);
+            dirty = true;
+            modCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void markClean() {
+        lock.writeLock().lock();
+        try {
+            dirtySlots.clear();
+            dirty = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Mark the page clean only if it was not modified since {@code expectedModCount} was read.
+     *
+     * @param expectedModCount The value of {@link #getModCount()} taken before the save
+     * @return true if the page was marked clean
+     */
+    public boolean markClean(long expectedModCount) {
+        lock.writeLock().lock();
+        try {
+            if (modCount != expectedModCount) {
+                return false;
+            }
+            dirtySlots.clear();
+            dirty = false;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get the number of modifications made to this page. Only ever increases.
+     */
+    public long getModCount() {
+        return modCount;
+    }
+
+    // Caller holds the write lock
+    private void store(int slot, ItemStack item) {
+        boolean wasOccupied = items[slot] != null;
+        if (item == null || item.isEmpty()) {
+            items[slot] = null;
+            occupied.clear(slot);
+            if (wasOccupied) adjustItemCount(-1);
+        } else {
+            items[slot] = item;
+            occupied.set(slot);
+            if (!wasOccupied) adjustItemCount(1);
+        }
+    }
+
+    private void adjustItemCount(int delta) {
+        itemCount += delta;
+        if (owner != null) {
+            owner.onItemCountChanged(delta);
+        }
+    }
+
+    Lock writeLock() {
+        return lock.writeLock();
+    }
+
+    /**
+     * Take an immutable copy of this page.
+     *
+     * @param forceDirty Report the snapshot as dirty even if the page is clean
+     */
+    PageSnapshot snapshot(boolean forceDirty) {
+        lock.readLock().lock();
+        try {
+            return new PageSnapshot(vaultNumber, slots, items.clone(), (BitSet) occupied.clone(),
+                    itemCount, forceDirty || dirty, modCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Link this page to the vault that holds it, for the running item total.
+     */
+    void attach(PlayerVault owner) {
+        this.owner = owner;
+    }
+
+    void detach() {
+        this.owner = null;
     }
 
     /**
@@ -91,12 +316,9 @@ public class VaultPage {
         json.addProperty("slots", slots);
 
         JsonArray itemsArray = new JsonArray();
-        for (Map.Entry<Integer, ItemStack> entry : items.entrySet()) {
-            ItemStack item = entry.getValue();
-            if (item == null || item.isEmpty()) continue;
-
+        forEachOccupied((slot, item) -> {
             JsonObject itemJson = new JsonObject();
-            itemJson.addProperty("slot", entry.getKey());
+            itemJson.addProperty("slot", slot);
             itemJson.addProperty("itemId", item.getItemId());
             itemJson.addProperty("quantity", item.getQuantity());
 
@@ -111,54 +333,9 @@ public class VaultPage {
             }
 
             itemsArray.add(itemJson);
-        }
+        });
         json.add("items", itemsArray);
 
         return json;
     }
-
-    /**
-     * Deserialize a vault from JSON.
-     * Supports both new "vaultNumber" and legacy "pageNumber" keys.
-     */
-    public static VaultPage deserialize(JsonObject json) {
-        int vaultNumber = json.has("vaultNumber")
-                ? json.get("vaultNumber").getAsInt()
-                : json.get("pageNumber").getAsInt();
-        int slots = json.get("slots").getAsInt();
-
-        VaultPage vault = new VaultPage(vaultNumber, slots);
-
-        if (json.has("items")) {
-            JsonArray itemsArray = json.getAsJsonArray("items");
-            for (JsonElement element : itemsArray) {
-                JsonObject itemJson = element.getAsJsonObject();
-                int slot = itemJson.get("slot").getAsInt();
-
-                String itemId = itemJson.has("itemId") ? itemJson.get("itemId").getAsString() : null;
-                if (itemId == null || itemId.isEmpty()) continue;
-
-                int quantity = itemJson.has("quantity") ? itemJson.get("quantity").getAsInt() : 1;
-
-                ItemStack item;
-                if (itemJson.has("durability") || itemJson.has("maxDurability") || itemJson.has("metadata")) {
-                    double durability = itemJson.has("durability") ? itemJson.get("durability").getAsDouble() : 0;
-                    double maxDurability = itemJson.has("maxDurability") ? itemJson.get("maxDurability").getAsDouble() : 0;
-                    BsonDocument metadata = null;
-                    if (itemJson.has("metadata")) {
-                        metadata = BsonDocument.parse(itemJson.get("metadata").getAsString());
-                    }
-                    item = new ItemStack(itemId, quantity, durability, maxDurability, metadata);
-                } else {
-                    item = new ItemStack(itemId, quantity);
-                }
-
-                if (!item.isEmpty()) {
-                    vault.items.put(slot, item);
-                }
-            }
-        }
-
-        return vault;
-    }
 }
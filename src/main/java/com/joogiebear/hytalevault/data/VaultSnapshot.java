@@ -0,0 +1,66 @@
+package com.joogiebear.hytalevault.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Immutable point-in-time copy of a {@link PlayerVault}, used by storage
+ * backends so serialization never holds a vault lock.
+ * Carries a generation stamp per page; passing the snapshot back to
+ * {@link PlayerVault#markClean(VaultSnapshot)} clears only what it captured.
+ */
+public final class VaultSnapshot {
+
+    private final UUID playerUuid;
+    private final int slotsPerVault;
+    private final List<PageSnapshot> pages;
+    private final long structuralGeneration;
+
+    VaultSnapshot(UUID playerUuid, int slotsPerVault, List<PageSnapshot> pages, long structuralGeneration) {
+        this.playerUuid = playerUuid;
+        this.slotsPerVault = slotsPerVault;
+        this.pages = List.copyOf(pages);
+        this.structuralGeneration = structuralGeneration;
+    }
+
+    public UUID getPlayerUuid() {
+        return playerUuid;
+    }
+
+    public int getSlotsPerVault() {
+        return slotsPerVault;
+    }
+
+    /**
+     * Get every page, in vault number order.
+     */
+    public List<PageSnapshot> getPages() {
+        return pages;
+    }
+
+    /**
+     * Get the pages that had unsaved changes (all pages if the whole vault was dirty).
+     */
+    public List<PageSnapshot> getDirtyPages() {
+        List<PageSnapshot> dirtyPages = new ArrayList<>();
+        for (PageSnapshot page : pages) {
+            if (page.isDirty()) {
+                dirtyPages.add(page);
+            }
+        }
+        return dirtyPages;
+    }
+
+    public int getTotalItemCount() {
+        int total = 0;
+        for (PageSnapshot page : pages) {
+            total += page.getItemCount();
+        }
+        return total;
+    }
+
+    long getStructuralGeneration() {
+        return structuralGeneration;
+    }
+}
@@ -0,0 +1,74 @@
+package com.joogiebear.hytalevault.data.storage;
+
+import com.joogiebear.hytalevault.data.PlayerVault;
+import com.joogiebear.hytalevault.data.VaultSnapshot;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The load and save skeleton shared by the storage backends: run on the
+ * storage executor, log failures, and surface them as a failed future.
+ */
+final class BackendTasks {
+
+    private static final Logger LOGGER = Logger.getLogger("HytaleVault");
+
+    private BackendTasks() {
+    }
+
+    /**
+     * Load a vault on the executor.
+     * A failed read fails the future rather than handing out an empty vault,
+     * whose next save would replace the real data.
+     *
+     * @param reader Reads the stored vault, or returns null if the player has none
+     * @return The stored vault, or a new empty one
+     */
+    static CompletableFuture<PlayerVault> load(UUID playerUuid, int slotsPerVault, Executor executor, VaultReader reader) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                PlayerVault vault = reader.read();
+                return vault != null ? vault : new PlayerVault(playerUuid, slotsPerVault);
+            } catch (IOException | SQLException e) {
+                LOGGER.log(Level.WARNING, "Failed to load vault for " + playerUuid, e);
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Save a vault on the executor and mark it clean as of the snapshot.
+     * The snapshot is taken on the caller's thread (cheap), so encoding and
+     * writing hold no vault locks. A failure fails the future, so callers such
+     * as journal compaction know the vault was not saved.
+     */
+    static CompletableFuture<Void> save(PlayerVault vault, Executor executor, SnapshotWriter writer) {
+        VaultSnapshot snapshot = vault.snapshot();
+        return CompletableFuture.runAsync(() -> {
+            try {
+                writer.write(snapshot);
+                vault.markClean(snapshot);
+            } catch (IOException | SQLException e) {
+                LOGGER.log(Level.SEVERE, "Failed to save vault for " + vault.getPlayerUuid(), e);
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    @FunctionalInterface
+    interface VaultReader {
+        PlayerVault read() throws IOException, SQLException;
+    }
+
+    @FunctionalInterface
+    interface SnapshotWriter {
+        void write(VaultSnapshot snapshot) throws IOException, SQLException;
+    }
+}
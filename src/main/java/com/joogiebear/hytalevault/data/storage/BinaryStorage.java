@@ -0,0 +1,65 @@
+package com.joogiebear.hytalevault.data.storage;
+
+import com.joogiebear.hytalevault.data.PlayerVault;
+import com.joogiebear.hytalevault.data.VaultSnapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+/**
+ * Binary file-based storage backend.
+ * Stores each player's vault in a compact {@link BinaryVaultCodec} file.
+ * Players that only have a JSON file are read from it and rewritten in
+ * binary on their next save.
+ */
+public class BinaryStorage extends FileStorage {
+
+    public static final String FILE_EXTENSION = ".vault";
+
+    /**
+     * Create a new binary storage backend.
+     *
+     * @param dataDirectory       The directory to store player data files
+     * @param executor            The executor that runs blocking file I/O
+     * @param fsyncPolicy         When written files are forced to disk
+     * @param fsyncIntervalMillis Batch interval for {@link FsyncPolicy#BATCHED}
+     */
+    public BinaryStorage(Path dataDirectory, Executor executor, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis) {
+        super(dataDirectory, executor, fsyncPolicy, fsyncIntervalMillis);
+    }
+
+    @Override
+    protected String getFileExtension() {
+        return FILE_EXTENSION;
+    }
+
+    @Override
+    protected PlayerVault readVault(InputStream in, UUID playerUuid, int slotsPerVault) throws IOException {
+        return BinaryVaultCodec.decode(in, slotsPerVault);
+    }
+
+    @Override
+    protected void writeVault(VaultSnapshot vault, OutputStream out) throws IOException {
+        OutputStream buffered = new BufferedOutputStream(out);
+        BinaryVaultCodec.encode(vault, buffered);
+        buffered.flush();
+    }
+
+    @Override
+    protected PlayerVault readLegacyVault(UUID playerUuid, int slotsPerVault) throws IOException {
+        Path jsonFile = FileStorage.locateFile(dataDirectory, playerUuid, JsonStorage.FILE_EXTENSION);
+        if (jsonFile == null) {
+            return null;
+        }
+        PlayerVault vault = JsonStorage.readJsonFile(jsonFile, slotsPerVault);
+        // Rewrite in binary on the next save; the JSON file is kept as a fallback copy
+        vault.markDirty();
+        LOGGER.info("Migrating vault for " + playerUuid + " from JSON to binary format");
+        return vault;
+    }
+}
@@ -0,0 +1,322 @@
+package com.joogiebear.hytalevault.data.storage;
+
+import com.hypixel.hytale.server.core.inventory.ItemStack;
+import com.joogiebear.hytalevault.data.PageSnapshot;
+import com.joogiebear.hytalevault.data.PlayerVault;
+import com.joogiebear.hytalevault.data.VaultPage;
+import com.joogiebear.hytalevault.data.VaultSnapshot;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Compact, versioned binary encoding of a player vault.
+ *
+ * <pre>
+ * file    := magic "HVLT" | u8 version | header | itemTable | varint pageCount | page*
+ * header  := varint length | u64 uuidMsb | u64 uuidLsb | varint slotsPerVault
+ * itemTable := varint length | varint count | (varint utf8Length | utf8 bytes)*
+ * page    := varint length | varint vaultNumber | varint slots | varint itemCount | item*
+ * item    := varint slot | varint itemIndex | varint quantity | u8 flags
+ *            | [f64 durability] | [f64 maxDurability] | [varint length | raw BSON metadata]
+ *
+ * standalonePage := varint count | (varint utf8Length | utf8 bytes)* | page fields (unprefixed)
+ * </pre>
+ *
+ * Item IDs are interned once per file; every record is length-prefixed so
+ * readers can skip records they do not understand.
+ */
+public final class BinaryVaultCodec {
+
+    public static final int VERSION = 1;
+
+    private static final byte[] MAGIC = {'H', 'V', 'L', 'T'};
+
+    private static final int FLAG_DURABILITY = 1;
+    private static final int FLAG_MAX_DURABILITY = 1 << 1;
+    private static final int FLAG_METADATA = 1 << 2;
+
+    private static final BsonDocumentCodec BSON_CODEC = new BsonDocumentCodec();
+
+    private BinaryVaultCodec() {
+    }
+
+    /**
+     * Encode a vault.
+     *
+     * @param vault The vault snapshot to encode
+     * @param out   The destination stream (not closed)
+     */
+    public static void encode(VaultSnapshot vault, OutputStream out) throws IOException {
+        Map<String, Integer> itemIndex = new HashMap<>();
+        List<String> itemTable = new ArrayList<>();
+
+        // Pages first, so the item table is complete before it is written
+        List<byte[]> pages = new ArrayList<>();
+        for (PageSnapshot page : vault.getPages()) {
+            if (!page.isEmpty()) {
+                pages.add(encodePage(page, itemIndex, itemTable));
+            }
+        }
+
+        out.write(MAGIC);
+        out.write(VERSION);
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream(24);
+        DataOutputStream headerOut = new DataOutputStream(header);
+        headerOut.writeLong(vault.getPlayerUuid().getMostSignificantBits());
+        headerOut.writeLong(vault.getPlayerUuid().getLeastSignificantBits());
+        writeVarInt(headerOut, vault.getSlotsPerVault());
+        writeRecord(out, header.toByteArray());
+
+        ByteArrayOutputStream table = new ByteArrayOutputStream(16 * itemTable.size() + 4);
+        writeVarInt(table, itemTable.size());
+        for (String itemId : itemTable) {
+            byte[] bytes = itemId.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(table, bytes.length);
+            table.write(bytes);
+        }
+        writeRecord(out, table.toByteArray());
+
+        writeVarInt(out, pages.size());
+        for (byte[] page : pages) {
+            writeRecord(out, page);
+        }
+    }
+
+    /**
+     * Decode a vault.
+     *
+     * @param in            The source stream (not closed)
+     * @param slotsPerVault Slots per vault (fallback only; the file stores its own)
+     * @return The decoded vault
+     */
+    public static PlayerVault decode(InputStream in, int slotsPerVault) throws IOException {
+        byte[] magic = in.readNBytes(MAGIC.length);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (magic.length != MAGIC.length || magic[i] != MAGIC[i]) {
+                throw new IOException("Not a HytaleVault binary file");
+            }
+        }
+        int version = in.read();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary vault version " + version);
+        }
+
+        ByteBuffer header = ByteBuffer.wrap(readRecord(in));
+        UUID playerUuid = new UUID(header.getLong(), header.getLong());
+        int slots = readVarInt(header);
+        PlayerVault vault = new PlayerVault(playerUuid, slots > 0 ? slots : slotsPerVault);
+
+        ByteBuffer table = ByteBuffer.wrap(readRecord(in));
+        String[] itemTable = new String[readVarInt(table)];
+        for (int i = 0; i < itemTable.length; i++) {
+            byte[] bytes = new byte[readVarInt(table)];
+            table.get(bytes);
+            itemTable[i] = bytes.length > 0 ? new String(bytes, StandardCharsets.UTF_8) : "";
+        }
+
+        int pageCount = readVarInt(in);
+        for (int i = 0; i < pageCount; i++) {
+            vault.addVault(decodePage(ByteBuffer.wrap(readRecord(in)), itemTable));
+        }
+        vault.markClean();
+        return vault;
+    }
+
+    /**
+     * Encode a single page with its own item table, for backends that store
+     * pages independently.
+     *
+     * @param page The page snapshot to encode
+     * @return The encoded page
+     */
+    static byte[] encodePage(PageSnapshot page) throws IOException {
+        Map<String, Integer> itemIndex = new HashMap<>();
+        List<String> itemTable = new ArrayList<>();
+        byte[] body = encodePage(page, itemIndex, itemTable);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length + 16 * itemTable.size() + 4);
+        writeVarInt(out, itemTable.size());
+        for (String itemId : itemTable) {
+            byte[] bytes = itemId.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(out, bytes.length);
+            out.write(bytes);
+        }
+        out.write(body);
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode a page written by {@link #encodePage(PageSnapshot)}.
+     *
+     * @param data The encoded page
+     * @return The decoded page
+     */
+    static VaultPage decodePage(byte[] data) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        String[] itemTable = new String[readVarInt(in)];
+        for (int i = 0; i < itemTable.length; i++) {
+            byte[] bytes = new byte[readVarInt(in)];
+            in.get(bytes);
+            itemTable[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return decodePage(in, itemTable);
+    }
+
+    private static byte[] encodePage(PageSnapshot page, Map<String, Integer> itemIndex, List<String> itemTable) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(buffer);
+
+        writeVarInt(out, page.getVaultNumber());
+        writeVarInt(out, page.getSlots());
+        writeVarInt(out, page.getItemCount());
+        for (int slot = page.nextOccupiedSlot(0); slot >= 0; slot = page.nextOccupiedSlot(slot + 1)) {
+            ItemStack item = page.getItem(slot);
+            Integer index = itemIndex.get(item.getItemId());
+            if (index == null) {
+                index = itemTable.size();
+                itemIndex.put(item.getItemId(), index);
+                itemTable.add(item.getItemId());
+            }
+
+            int flags = 0;
+            if (item.getDurability() != 0) flags |= FLAG_DURABILITY;
+            if (item.getMaxDurability() != 0) flags |= FLAG_MAX_DURABILITY;
+            if (item.getMetadata() != null) flags |= FLAG_METADATA;
+
+            writeVarInt(out, slot);
+            writeVarInt(out, index);
+            writeVarInt(out, item.getQuantity());
+            out.writeByte(flags);
+            if ((flags & FLAG_DURABILITY) != 0) out.writeDouble(item.getDurability());
+            if ((flags & FLAG_MAX_DURABILITY) != 0) out.writeDouble(item.getMaxDurability());
+            if ((flags & FLAG_METADATA) != 0) {
+                byte[] metadata = encodeBson(item.getMetadata());
+                writeVarInt(out, metadata.length);
+                out.write(metadata);
+            }
+        }
+        return buffer.toByteArray();
+    }
+
+    private static VaultPage decodePage(ByteBuffer in, String[] itemTable) throws IOException {
+        int vaultNumber = readVarInt(in);
+        int slots = readVarInt(in);
+        int itemCount = readVarInt(in);
+        VaultPage page = new VaultPage(vaultNumber, slots);
+
+        for (int i = 0; i < itemCount; i++) {
+            int slot = readVarInt(in);
+            int index = readVarInt(in);
+            int quantity = readVarInt(in);
+            int flags = in.get() & 0xFF;
+            double durability = (flags & FLAG_DURABILITY) != 0 ? in.getDouble() : 0;
+            double maxDurability = (flags & FLAG_MAX_DURABILITY) != 0 ? in.getDouble() : 0;
+            BsonDocument metadata = null;
+            if ((flags & FLAG_METADATA) != 0) {
+                byte[] bytes = new byte[readVarInt(in)];
+                in.get(bytes);
+                metadata = decodeBson(bytes);
+            }
+
+            if (index < 0 || index >= itemTable.length) {
+                throw new IOException("Item index " + index + " out of range in vault " + vaultNumber);
+            }
+            String itemId = itemTable[index];
+            if (itemId.isEmpty()) continue;
+
+            ItemStack item = flags != 0
+                    ? new ItemStack(itemId, quantity, durability, maxDurability, metadata)
+                    : new ItemStack(itemId, quantity);
+            if (!item.isEmpty()) {
+                page.setItem(slot, item);
+            }
+        }
+        return page;
+    }
+
+    static byte[] encodeBson(BsonDocument document) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            BSON_CODEC.encode(writer, document, EncoderContext.builder().build());
+        }
+        return buffer.toByteArray();
+    }
+
+    static BsonDocument decodeBson(byte[] bytes) {
+        try (BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(bytes))) {
+            return BSON_CODEC.decode(reader, DecoderContext.builder().build());
+        }
+    }
+
+    private static void writeRecord(OutputStream out, byte[] record) throws IOException {
+        writeVarInt(out, record.length);
+        out.write(record);
+    }
+
+    private static byte[] readRecord(InputStream in) throws IOException {
+        int length = readVarInt(in);
+        byte[] record = in.readNBytes(length);
+        if (record.length != length) {
+            throw new EOFException("Truncated record");
+        }
+        return record;
+    }
+
+    static void writeVarInt(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    static int readVarInt(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated varint");
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static int readVarInt(ByteBuffer in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (!in.hasRemaining()) {
+                throw new EOFException("Truncated varint");
+            }
+            int b = in.get() & 0xFF;
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,19 @@
+package com.joogiebear.hytalevault.data.storage;
+
+import java.io.IOException;
+
+/**
+ * Stored vault data that was read successfully but failed validation
+ * (checksum mismatch or undecodable content), as opposed to an I/O failure.
+ * Backends quarantine the data and fall back instead of retrying.
+ */
+class CorruptVaultException extends IOException {
+
+    CorruptVaultException(String message) {
+        super(message);
+    }
+
+    CorruptVaultException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
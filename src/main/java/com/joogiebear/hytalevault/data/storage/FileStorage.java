@@ -0,0 +1,828 @@
+package com.joogiebear.hytalevault.data.storage;
+
+import com.joogiebear.hytalevault.data.PlayerVault;
+import com.joogiebear.hytalevault.data.VaultSnapshot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Base class for storage backends that keep one file per player.
+ * Handles the directory, the executor, crash-safe replacement and error
+ * handling; subclasses only define the file format.
+ *
+ * Saves never write over the live file: the new content goes to a temp file,
+ * is forced according to the {@link FsyncPolicy}, and is then atomically
+ * renamed over the old one. A crash mid-save leaves the previous file intact.
+ * With {@link FsyncPolicy#GROUP} the rename is handed to a
+ * {@link GroupCommitter} so concurrent saves share directory barriers.
+ *
+ * Files are sharded by the first two bytes of the UUID
+ * ({@code ab/cd/abcd....ext}) so no directory grows past a few hundred
+ * entries. Files from the old flat layout are moved in the background on
+ * first start; the move is resumable and lookups fall back to the flat path
+ * until it finishes. A {@link VaultIndex} tracks size, time and item count
+ * per player for admin stats.
+ *
+ * Every file ends with a CRC32C trailer. Each save keeps the previous file as
+ * {@code <file>.bak}; a file that fails its checksum or cannot be decoded is
+ * moved to {@code quarantine/} and the backup is loaded instead, with the slot
+ * journal replayed on top. If neither is intact the player starts from the
+ * journal alone, and the original data stays in quarantine for recovery.
+ */
+public abstract class FileStorage implements StorageBackend {
+
+    protected static final Logger LOGGER = Logger.getLogger("HytaleVault");
+
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String BACKUP_SUFFIX = ".bak";
+    private static final String QUARANTINE_DIRECTORY = "quarantine";
+    // "\n#HVCK " + 8 hex digits + "\n"; text so JSON files stay readable
+    private static final byte[] CHECKSUM_PREFIX = "\n#HVCK ".getBytes(StandardCharsets.US_ASCII);
+    private static final int CHECKSUM_TRAILER_SIZE = CHECKSUM_PREFIX.length + 9;
+    private static final String LAYOUT_MARKER = ".layout-v2";
+    private static final String[] MIGRATED_EXTENSIONS = {JsonStorage.FILE_EXTENSION, BinaryStorage.FILE_EXTENSION};
+
+    protected final Path dataDirectory;
+    protected final Executor executor;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalMillis;
+    private final Set<Path> unsyncedDirectories;
+    private final AtomicLong tempCounter;
+    private ScheduledExecutorService fsyncScheduler;
+    private GroupCommitter groupCommitter;
+    private VaultIndex index;
+    private volatile boolean indexComplete;
+    private volatile boolean flatFilesRemain;
+    private Thread maintenanceThread;
+
+    /**
+     * Create a new file-based storage backend.
+     *
+     * @param dataDirectory       The directory to store player data files
+     * @param executor            The executor that runs blocking file I/O
+     * @param fsyncPolicy         When written files are forced to disk
+     * @param fsyncIntervalMillis Batch interval for {@link FsyncPolicy#BATCHED},
+     *                            commit window for {@link FsyncPolicy#GROUP}
+     */
+    protected FileStorage(Path dataDirectory, Executor executor, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis) {
+        this.dataDirectory = dataDirectory;
+        this.executor = executor;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalMillis = Math.max(0, fsyncIntervalMillis);
+        this.unsyncedDirectories = ConcurrentHashMap.newKeySet();
+        this.tempCounter = new AtomicLong();
+    }
+
+    /**
+     * Get the file extension for this format, including the dot.
+     */
+    protected abstract String getFileExtension();
+
+    /**
+     * Read a player's vault from the verified contents of its file.
+     *
+     * @param in            The file contents, checksum trailer removed
+     * @param playerUuid    The player's UUID
+     * @param slotsPerVault Slots per vault (used if not stored in the file)
+     * @return The loaded vault
+     */
+    protected abstract PlayerVault readVault(InputStream in, UUID playerUuid, int slotsPerVault) throws IOException;
+
+    /**
+     * Write a player's vault.
+     *
+     * @param vault The vault snapshot to write
+     * @param out   The destination stream (a temp file; closed by the caller)
+     */
+    protected abstract void writeVault(VaultSnapshot vault, OutputStream out) throws IOException;
+
+    /**
+     * Hook for reading a vault stored by another format when this format has no file yet.
+     *
+     * @return The vault, or null if there is nothing to migrate
+     */
+    protected PlayerVault readLegacyVault(UUID playerUuid, int slotsPerVault) throws IOException {
+        return null;
+    }
+
+    @Override
+    public void initialize() {
+        try {
+            if (!Files.exists(dataDirectory)) {
+                Files.createDirectories(dataDirectory);
+                LOGGER.info("Created data directory: " + dataDirectory);
+            }
+            deleteStaleTempFiles();
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to create data directory", e);
+        }
+
+        if (fsyncPolicy == FsyncPolicy.BATCHED) {
+            fsyncScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "HytaleVault-Fsync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = Math.max(10, fsyncIntervalMillis);
+            fsyncScheduler.scheduleWithFixedDelay(this::syncPendingDirectories, interval, interval, TimeUnit.MILLISECONDS);
+        } else if (fsyncPolicy == FsyncPolicy.GROUP) {
+            groupCommitter = new GroupCommitter(fsyncIntervalMillis);
+            groupCommitter.start();
+        }
+
+        index = new VaultIndex(dataDirectory.resolve("index" + getFileExtension() + ".idx"));
+        indexComplete = index.load();
+        flatFilesRemain = !Files.exists(dataDirectory.resolve(LAYOUT_MARKER));
+        if (flatFilesRemain || !indexComplete) {
+            maintenanceThread = Thread.ofPlatform().daemon(true).name("HytaleVault-Layout").start(this::runMaintenance);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        if (maintenanceThread != null) {
+            // Both steps are resumable; pick up where we left off next start
+            maintenanceThread.interrupt();
+            try {
+                maintenanceThread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (index != null && indexComplete) {
+            try {
+                writeAtomically(index.getFile(), index::write);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to write vault index; it will be rebuilt", e);
+            }
+        }
+        if (groupCommitter != null) {
+            groupCommitter.shutdown();
+        }
+        if (fsyncScheduler != null) {
+            fsyncScheduler.shutdown();
+            try {
+                fsyncScheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Final barrier for anything renamed since the last batch
+        syncPendingDirectories();
+    }
+
+    @Override
+    public CompletableFuture<PlayerVault> loadVault(UUID playerUuid, int slotsPerVault) {
+        return BackendTasks.load(playerUuid, slotsPerVault, executor, () -> {
+            Path filePath = locatePlayerFile(playerUuid);
+            if (filePath == null) {
+                if (Files.exists(getBackupFile(playerUuid))) {
+                    // Crashed between moving the old file aside and renaming the new one in
+                    return recover(playerUuid, null, slotsPerVault);
+                }
+                return readLegacyVault(playerUuid, slotsPerVault);
+            }
+            try {
+                return readVerified(filePath, playerUuid, slotsPerVault);
+            } catch (CorruptVaultException e) {
+                LOGGER.log(Level.SEVERE, "Vault file for " + playerUuid + " is corrupt", e);
+                return recover(playerUuid, filePath, slotsPerVault);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> saveVault(PlayerVault vault) {
+        Path filePath = getPlayerFile(vault.getPlayerUuid());
+        // Written in two stages (temp file, then commit), so this does not use BackendTasks.save
+        VaultSnapshot snapshot = vault.snapshot();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return writeTemp(filePath, out -> writeChecksummed(snapshot, out));
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Failed to save vault for " + vault.getPlayerUuid(), e);
+                // Propagate so callers (e.g. journal compaction) know the snapshot is stale
+                throw new UncheckedIOException(e);
+            }
+        }, executor).thenCompose(temp -> commit(temp, filePath, getBackupFile(vault.getPlayerUuid()))).thenRun(() -> {
+            vault.markClean(snapshot);
+            afterSave(snapshot, filePath);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteVault(UUID playerUuid) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                Files.deleteIfExists(getPlayerFile(playerUuid));
+                Files.deleteIfExists(getFlatFile(playerUuid));
+                Files.deleteIfExists(getBackupFile(playerUuid));
+                index.remove(playerUuid);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to delete vault for " + playerUuid, e);
+            }
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> vaultExists(UUID playerUuid) {
+        return CompletableFuture.supplyAsync(() -> locatePlayerFile(playerUuid) != null, executor);
+    }
+
+    @Override
+    public CompletableFuture<StorageStats> getStats() {
+        return CompletableFuture.completedFuture(index.getStats(indexComplete));
+    }
+
+    /**
+     * Replace a file without ever exposing a partially written version,
+     * blocking until the replacement is done (and durable, per the fsync policy).
+     *
+     * @param target  The file to replace
+     * @param content Writes the new content
+     */
+    protected void writeAtomically(Path target, ContentWriter content) throws IOException {
+        try {
+            commit(writeTemp(target, content), target, null).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Write new content for a file to a unique sibling temp file.
+     * Forced before returning under every policy but {@link FsyncPolicy#NEVER}:
+     * the rename that follows must never expose content that is not on disk
+     * yet (XFS, or ext4 without auto_da_alloc, can otherwise leave an empty
+     * target after a power loss). Forcing here, on the storage worker, also
+     * lets concurrent saves force their files in parallel.
+     *
+     * @return The temp file
+     */
+    private Path writeTemp(Path target, ContentWriter content) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(target.getFileName() + "." + tempCounter.incrementAndGet() + TEMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            content.write(out);
+            out.flush();
+            if (fsyncPolicy != FsyncPolicy.NEVER) {
+                channel.force(true);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return temp;
+    }
+
+    /**
+     * Atomically rename a written temp file over its target.
+     *
+     * @param backup Where to keep the replaced file, or null to discard it
+     * @return A future that completes once the rename is done (durably, for group commit)
+     */
+    private CompletableFuture<Void> commit(Path temp, Path target, Path backup) {
+        if (groupCommitter != null) {
+            return groupCommitter.commit(temp, target, backup);
+        }
+        try {
+            replace(temp, target, backup);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to replace " + target, e);
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Removed as a stale temp file on next startup
+            }
+            return CompletableFuture.failedFuture(e);
+        }
+
+        switch (fsyncPolicy) {
+            case ALWAYS -> syncDirectory(target.getParent());
+            case BATCHED -> unsyncedDirectories.add(target.getParent());
+            default -> { }
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Rename a temp file over its target, first moving the current target to
+     * the backup path if one is given.
+     */
+    static void replace(Path temp, Path target, Path backup) throws IOException {
+        if (backup != null) {
+            try {
+                move(target, backup);
+            } catch (NoSuchFileException e) {
+                // First save for this player
+            }
+        }
+        move(temp, target);
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Write a vault followed by its checksum trailer.
+     */
+    private void writeChecksummed(VaultSnapshot snapshot, OutputStream out) throws IOException {
+        CheckedOutputStream checked = new CheckedOutputStream(out, new CRC32C());
+        writeVault(snapshot, checked);
+        checked.flush();
+        out.write(CHECKSUM_PREFIX);
+        out.write(String.format("%08x\n", checked.getChecksum().getValue()).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Decode a vault file while streaming it, then verify its checksum trailer.
+     * The decoder never sees the trailer; files written before checksums were
+     * added have none and are decoded as is. Anything wrong with the content,
+     * as opposed to reading it, is reported as corruption.
+     *
+     * @throws CorruptVaultException If the content cannot be decoded or the checksum does not match
+     */
+    static <T> T readChecked(Path file, ContentReader<T> reader) throws IOException {
+        try (ChecksumTrailerInputStream in = new ChecksumTrailerInputStream(Files.newInputStream(file))) {
+            T result;
+            try {
+                result = reader.read(in);
+            } catch (IOException | RuntimeException e) {
+                if (in.readFailure != null) {
+                    throw in.readFailure;
+                }
+                throw new CorruptVaultException("Failed to decode " + file, e);
+            }
+            in.verify(file);
+            return result;
+        }
+    }
+
+    private PlayerVault readVerified(Path file, UUID playerUuid, int slotsPerVault) throws IOException {
+        return readChecked(file, in -> readVault(in, playerUuid, slotsPerVault));
+    }
+
+    /**
+     * Recover from a corrupt (or missing) vault file: quarantine it and fall
+     * back to the previous generation. The caller replays the slot journal on top.
+     *
+     * @param corruptFile The file that failed validation, or null if it is missing
+     */
+    private PlayerVault recover(UUID playerUuid, Path corruptFile, int slotsPerVault) throws IOException {
+        if (corruptFile != null) {
+            quarantine(corruptFile);
+        }
+        Path backup = getBackupFile(playerUuid);
+        if (Files.exists(backup)) {
+            try {
+                PlayerVault vault = readVerified(backup, playerUuid, slotsPerVault);
+                // Rewrite a good primary file on the next save
+                vault.markDirty();
+                LOGGER.warning("Restored vault for " + playerUuid + " from its previous save");
+                return vault;
+            } catch (CorruptVaultException e) {
+                LOGGER.log(Level.SEVERE, "Backup vault file for " + playerUuid + " is corrupt too", e);
+                quarantine(backup);
+            }
+        }
+        LOGGER.severe("No intact vault file for " + playerUuid + "; starting from the slot journal. "
+                + "The damaged data is kept in " + dataDirectory.resolve(QUARANTINE_DIRECTORY));
+        return new PlayerVault(playerUuid, slotsPerVault);
+    }
+
+    /**
+     * Move a file that failed validation out of the way, so it is never
+     * overwritten and can be inspected later.
+     */
+    private void quarantine(Path file) throws IOException {
+        Path directory = dataDirectory.resolve(QUARANTINE_DIRECTORY);
+        Files.createDirectories(directory);
+        Path target = directory.resolve(file.getFileName() + "." + System.currentTimeMillis());
+        Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+        LOGGER.warning("Quarantined " + file.getFileName() + " as " + target);
+    }
+
+    /**
+     * Force the directories that received renames since the last batch.
+     */
+    private void syncPendingDirectories() {
+        Iterator<Path> iterator = unsyncedDirectories.iterator();
+        while (iterator.hasNext()) {
+            Path directory = iterator.next();
+            iterator.remove();
+            syncDirectory(directory);
+        }
+    }
+
+    /**
+     * Force a directory so renames into it survive a power loss.
+     * Not supported on every platform (e.g. Windows); failures are ignored.
+     */
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directory fsync is best effort
+        }
+    }
+
+    /**
+     * Remove temp files left by saves that never completed, in the data
+     * directory (index, flat layout) and in the shard directories.
+     */
+    private void deleteStaleTempFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(dataDirectory, 3)) {
+            Iterator<Path> iterator = files
+                    .filter(file -> file.getFileName().toString().endsWith(TEMP_SUFFIX))
+                    .iterator();
+            while (iterator.hasNext()) {
+                Path temp = iterator.next();
+                Files.deleteIfExists(temp);
+                LOGGER.info("Removed incomplete save " + dataDirectory.relativize(temp));
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Writes file content to a stream.
+     */
+    @FunctionalInterface
+    protected interface ContentWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Reads file content from a stream.
+     */
+    @FunctionalInterface
+    interface ContentReader<T> {
+        T read(InputStream in) throws IOException;
+    }
+
+    /**
+     * Passes a file through to the decoder while computing its CRC32C, holding
+     * back the last {@link #CHECKSUM_TRAILER_SIZE} bytes until EOF shows
+     * whether they are a trailer or content. A checksum prefix among those
+     * bytes marks the start of the trailer even if the file was cut short
+     * inside it.
+     */
+    private static final class ChecksumTrailerInputStream extends InputStream {
+
+        private final InputStream in;
+        private final CRC32C crc = new CRC32C();
+        private final byte[] buffer = new byte[8192 + CHECKSUM_TRAILER_SIZE];
+        private int start;
+        private int end;
+        private boolean eof;
+        private int contentEnd; // buffer index where the content ends, once eof is set
+        private IOException readFailure;
+
+        ChecksumTrailerInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * Buffer enough to know how many bytes can be passed on.
+         *
+         * @return Content bytes available, 0 only at the end of the content
+         */
+        private int fill() throws IOException {
+            while (!eof && end - start <= CHECKSUM_TRAILER_SIZE) {
+                if (end == buffer.length) {
+                    System.arraycopy(buffer, start, buffer, 0, end - start);
+                    end -= start;
+                    start = 0;
+                }
+                int read;
+                try {
+                    read = in.read(buffer, end, buffer.length - end);
+                } catch (IOException e) {
+                    readFailure = e;
+                    throw e;
+                }
+                if (read < 0) {
+                    eof = true;
+                    contentEnd = findTrailer();
+                } else {
+                    end += read;
+                }
+            }
+            if (eof) {
+                return contentEnd - start;
+            }
+            return Math.max(end - start - CHECKSUM_TRAILER_SIZE, 0);
+        }
+
+        /**
+         * Find the trailer among the held-back bytes at EOF.
+         *
+         * @return Where it starts, or the end of the buffer if there is none
+         */
+        private int findTrailer() {
+            for (int i = Math.max(start, end - CHECKSUM_TRAILER_SIZE); i <= end - CHECKSUM_PREFIX.length; i++) {
+                if (Arrays.equals(buffer, i, i + CHECKSUM_PREFIX.length, CHECKSUM_PREFIX, 0, CHECKSUM_PREFIX.length)) {
+                    return i;
+                }
+            }
+            return end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (fill() == 0) {
+                return -1;
+            }
+            crc.update(buffer[start]);
+            return buffer[start++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            int available = fill();
+            if (available == 0) {
+                return -1;
+            }
+            int count = Math.min(len, available);
+            System.arraycopy(buffer, start, b, off, count);
+            crc.update(buffer, start, count);
+            start += count;
+            return count;
+        }
+
+        /**
+         * Consume whatever the decoder left unread and check the trailer.
+         * Files without a trailer pass.
+         *
+         * @throws CorruptVaultException If the trailer is cut short or does not match
+         */
+        void verify(Path file) throws IOException {
+            byte[] skip = new byte[8192];
+            while (read(skip, 0, skip.length) >= 0) {
+                // Drain into the checksum
+            }
+            int trailerSize = end - contentEnd;
+            if (trailerSize == 0) {
+                return;
+            }
+            if (trailerSize < CHECKSUM_TRAILER_SIZE) {
+                throw new CorruptVaultException("Truncated checksum trailer in " + file);
+            }
+            String stored = new String(buffer, contentEnd + CHECKSUM_PREFIX.length, 8, StandardCharsets.US_ASCII);
+            if (!stored.equals(String.format("%08x", crc.getValue()))) {
+                throw new CorruptVaultException("Checksum mismatch in " + file);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Get the file path for a player's vault data.
+     *
+     * @param playerUuid The player's UUID
+     * @return The file path
+     */
+    protected Path getPlayerFile(UUID playerUuid) {
+        return shardedFile(dataDirectory, playerUuid, getFileExtension());
+    }
+
+    /**
+     * Get the previous generation of a player's file.
+     */
+    protected Path getBackupFile(UUID playerUuid) {
+        Path file = getPlayerFile(playerUuid);
+        return file.resolveSibling(file.getFileName() + BACKUP_SUFFIX);
+    }
+
+    /**
+     * Get where a player's file lived in the old flat layout.
+     */
+    protected Path getFlatFile(UUID playerUuid) {
+        return dataDirectory.resolve(playerUuid.toString() + getFileExtension());
+    }
+
+    /**
+     * Find a player's existing file in either layout.
+     *
+     * @return The file, or null if the player has none
+     */
+    private Path locatePlayerFile(UUID playerUuid) {
+        return locateFile(dataDirectory, playerUuid, getFileExtension());
+    }
+
+    /**
+     * Get the sharded location of a player file: {@code <dir>/ab/cd/<uuid><ext>}.
+     */
+    static Path shardedFile(Path directory, UUID playerUuid, String extension) {
+        String name = playerUuid.toString();
+        return directory.resolve(name.substring(0, 2)).resolve(name.substring(2, 4)).resolve(name + extension);
+    }
+
+    /**
+     * Find a player file in the sharded layout, falling back to the flat layout
+     * while migration is still running.
+     *
+     * @return The file, or null if it exists in neither
+     */
+    static Path locateFile(Path directory, UUID playerUuid, String extension) {
+        Path sharded = shardedFile(directory, playerUuid, extension);
+        if (Files.exists(sharded)) {
+            return sharded;
+        }
+        Path flat = directory.resolve(playerUuid.toString() + extension);
+        if (Files.exists(flat)) {
+            return flat;
+        }
+        // The migration may have moved it between the two checks
+        return Files.exists(sharded) ? sharded : null;
+    }
+
+    private void afterSave(VaultSnapshot snapshot, Path file) {
+        UUID playerUuid = snapshot.getPlayerUuid();
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            index.put(playerUuid, new VaultIndex.Entry(attributes.size(),
+                    attributes.lastModifiedTime().toMillis(), snapshot.getTotalItemCount()));
+            if (flatFilesRemain) {
+                // The sharded copy is now newest; don't let the migration move the old one over it
+                Files.deleteIfExists(getFlatFile(playerUuid));
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Failed to update vault index for " + playerUuid, e);
+        }
+    }
+
+    /**
+     * Background layout work: move flat files into shards, then rebuild the
+     * index if the last shutdown was not clean. Stops early on interrupt.
+     */
+    private void runMaintenance() {
+        try {
+            if (flatFilesRemain) {
+                migrateFlatLayout();
+            }
+            if (!indexComplete) {
+                rebuildIndex();
+            }
+        } catch (InterruptedException e) {
+            LOGGER.info("Vault layout maintenance paused; it will resume on next start");
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Vault layout maintenance failed; it will retry on next start", e);
+        }
+    }
+
+    /**
+     * Move a file without ever replacing an existing target. A rename would
+     * silently overwrite a sharded file saved since startup, so the file is
+     * hard-linked into place (which fails if the target exists) and the old
+     * name removed. Falls back to a non-replacing move where hard links are
+     * not supported.
+     *
+     * @throws FileAlreadyExistsException If the target already exists
+     */
+    private static void moveIfAbsent(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            if (e instanceof FileAlreadyExistsException exists) {
+                throw exists;
+            }
+            Files.move(source, target);
+            return;
+        }
+        Files.delete(source);
+    }
+
+    private void migrateFlatLayout() throws IOException, InterruptedException {
+        int moved = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dataDirectory, Files::isRegularFile)) {
+            for (Path file : stream) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException();
+                }
+                UUID playerUuid = parsePlayerFile(file, MIGRATED_EXTENSIONS);
+                if (playerUuid == null) {
+                    continue;
+                }
+                String extension = file.getFileName().toString().substring(36);
+                Path target = shardedFile(dataDirectory, playerUuid, extension);
+                Files.createDirectories(target.getParent());
+                try {
+                    moveIfAbsent(file, target);
+                } catch (FileAlreadyExistsException e) {
+                    // Saved in the new layout since startup; the flat copy is stale
+                    Files.deleteIfExists(file);
+                }
+                if (++moved % 10000 == 0) {
+                    LOGGER.info("Moved " + moved + " vault files to the sharded layout...");
+                }
+            }
+        }
+        Files.createFile(dataDirectory.resolve(LAYOUT_MARKER));
+        flatFilesRemain = false;
+        if (moved > 0) {
+            LOGGER.info("Moved " + moved + " vault files to the sharded layout");
+        }
+    }
+
+    private void rebuildIndex() throws IOException, InterruptedException {
+        LOGGER.info("Rebuilding vault index...");
+        int indexed = 0;
+        String extension = getFileExtension();
+        try (Stream<Path> files = Files.walk(dataDirectory, 3)) {
+            Iterator<Path> iterator = files.iterator();
+            while (iterator.hasNext()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException();
+                }
+                Path file = iterator.next();
+                // Temp files are skipped: saves run concurrently, and crash leftovers were removed in initialize()
+                UUID playerUuid = parsePlayerFile(file, extension);
+                if (playerUuid == null || !Files.isRegularFile(file)) {
+                    continue;
+                }
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    PlayerVault vault = readVerified(file, playerUuid, 0);
+                    index.putIfAbsent(playerUuid, new VaultIndex.Entry(attributes.size(),
+                            attributes.lastModifiedTime().toMillis(), vault.getTotalItemCount()));
+                    indexed++;
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.log(Level.FINE, "Skipping unreadable vault file " + file, e);
+                }
+            }
+        }
+        indexComplete = true;
+        LOGGER.info("Indexed " + indexed + " vault files");
+    }
+
+    /**
+     * Get the player UUID from a file named {@code <uuid><ext>}.
+     *
+     * @return The UUID, or null if the name does not match
+     */
+    private static UUID parsePlayerFile(Path file, String... extensions) {
+        String name = file.getFileName().toString();
+        for (String extension : extensions) {
+            if (name.length() == 36 + extension.length() && name.endsWith(extension)) {
+                try {
+                    return UUID.fromString(name.substring(0, 36));
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+}
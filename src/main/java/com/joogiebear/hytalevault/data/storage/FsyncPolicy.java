@@ -0,0 +1,46 @@
+package com.joogiebear.hytalevault.data.storage;
+
+/**
+ * When vault file writes are forced to stable storage.
+ */
+public enum FsyncPolicy {
+
+    /**
+     * Force every file (and its directory entry) before the save completes.
+     * Most durable, slowest.
+     */
+    ALWAYS,
+
+    /**
+     * Force each new file before it replaces the old one, but sync directory
+     * entries in periodic batches. A power loss can undo the renames of the
+     * last batch window (the previous file is found instead), but never leaves
+     * a torn file.
+     */
+    BATCHED,
+
+    /**
+     * Durable like {@link #ALWAYS}, but saves arriving within a short window
+     * share the directory syncs that make their renames durable. Best for bursts.
+     */
+    GROUP,
+
+    /**
+     * Leave flushing to the operating system.
+     */
+    NEVER;
+
+    /**
+     * Parse a policy from config, defaulting to batched.
+     */
+    public static FsyncPolicy fromString(String value) {
+        if (value != null) {
+            for (FsyncPolicy policy : values()) {
+                if (policy.name().equalsIgnoreCase(value)) {
+                    return policy;
+                }
+            }
+        }
+        return BATCHED;
+    }
+}
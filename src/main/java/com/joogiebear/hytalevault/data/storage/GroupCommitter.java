@@ -0,0 +1,196 @@
+package com.joogiebear.hytalevault.data.storage;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Group commit for durable file replacement.
+ * Temp files arrive already forced by the storage workers. Those handed in
+ * within a short window are renamed over their targets together, and then one
+ * directory sync per directory makes the renames in it durable. A save's
+ * future completes once its directory has been synced.
+ *
+ * Directory syncs run in parallel on a small pool, so the commit thread only
+ * does renames. Under an autosave burst or a mass disconnect, saves that land
+ * in the same shard directory share one directory sync.
+ */
+class GroupCommitter {
+
+    private static final Logger LOGGER = Logger.getLogger("HytaleVault");
+
+    private static final int MAX_BATCH = 512;
+    private static final int SYNC_THREADS = 4;
+
+    private final long windowMillis;
+    private final LinkedBlockingQueue<Entry> queue;
+    private final Thread thread;
+    private final ExecutorService directorySyncs;
+    private final Object lock = new Object();
+    private volatile boolean running; // written under lock
+
+    /**
+     * Create a new group committer.
+     *
+     * @param windowMillis How long to wait for more saves after the first one arrives
+     */
+    GroupCommitter(long windowMillis) {
+        this.windowMillis = Math.max(0, windowMillis);
+        this.queue = new LinkedBlockingQueue<>();
+        this.thread = new Thread(this::run, "HytaleVault-GroupCommit");
+        this.thread.setDaemon(true);
+        this.directorySyncs = Executors.newFixedThreadPool(SYNC_THREADS, r -> {
+            Thread syncThread = new Thread(r, "HytaleVault-DirSync");
+            syncThread.setDaemon(true);
+            return syncThread;
+        });
+    }
+
+    void start() {
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * Stop after committing everything already submitted.
+     */
+    void shutdown() {
+        synchronized (lock) {
+            // No entry can be queued after this, so the drain below sees all of them
+            running = false;
+        }
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Anything left (thread never started or timed out) is committed here
+        List<Entry> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            commitBatch(remaining);
+        }
+        directorySyncs.shutdown();
+        try {
+            directorySyncs.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queue a written temp file to replace its target.
+     *
+     * @param temp   The fully written and forced temp file
+     * @param target The file it replaces
+     * @param backup Where to keep the replaced file, or null to discard it
+     * @return A future that completes once the replacement is durable
+     */
+    CompletableFuture<Void> commit(Path temp, Path target, Path backup) {
+        Entry entry = new Entry(temp, target, backup, new CompletableFuture<>());
+        synchronized (lock) {
+            if (running) {
+                queue.add(entry);
+                return entry.future;
+            }
+        }
+        commitBatch(List.of(entry));
+        return entry.future;
+    }
+
+    private void run() {
+        List<Entry> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Give concurrent saves a moment to join this barrier
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMillis);
+                while (batch.size() < MAX_BATCH) {
+                    long remaining = deadline - System.nanoTime();
+                    Entry next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (!batch.isEmpty()) {
+                commitBatch(batch);
+                batch.clear();
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+        }
+    }
+
+    private void commitBatch(List<Entry> batch) {
+        Map<Path, List<Entry>> byDirectory = new LinkedHashMap<>();
+
+        for (Entry entry : batch) {
+            try {
+                FileStorage.replace(entry.temp, entry.target, entry.backup);
+                byDirectory.computeIfAbsent(entry.target.getParent(), d -> new ArrayList<>()).add(entry);
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Failed to commit " + entry.target, e);
+                deleteQuietly(entry.temp);
+                entry.future.completeExceptionally(e);
+            }
+        }
+
+        // One barrier per directory covers every rename in it
+        for (Map.Entry<Path, List<Entry>> directory : byDirectory.entrySet()) {
+            Runnable sync = () -> syncDirectory(directory.getKey(), directory.getValue());
+            try {
+                directorySyncs.execute(sync);
+            } catch (RejectedExecutionException e) {
+                // Shut down: commit on the caller's thread
+                sync.run();
+            }
+        }
+    }
+
+    private static void syncDirectory(Path directory, List<Entry> entries) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directory fsync is best effort (unsupported on Windows)
+        }
+        for (Entry entry : entries) {
+            entry.future.complete(null);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Cleaned up as a stale temp file on next startup
+        }
+    }
+
+    private record Entry(Path temp, Path target, Path backup, CompletableFuture<Void> future) {
+    }
+}
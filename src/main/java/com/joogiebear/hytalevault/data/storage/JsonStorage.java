@@ -1,126 +1,68 @@
 package com.joogiebear.hytalevault.data.storage;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import com.joogiebear.hytalevault.data.PlayerVault;
+import com.joogiebear.hytalevault.data.VaultSnapshot;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.concurrent.Executor;
 
 /**
  * JSON file-based storage backend.
- * Stores each player's vault in a separate JSON file.
+ * Stores each player's vault in a separate JSON file, read and written
+ * with the streaming {@link JsonVaultCodec}.
  */
-public class JsonStorage implements StorageBackend {
+public class JsonStorage extends FileStorage {
 
-    private static final Logger LOGGER = Logger.getLogger("HytaleVault");
-    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
-
-    private final Path dataDirectory;
+    public static final String FILE_EXTENSION = ".json";
 
     /**
      * Create a new JSON storage backend.
      *
-     * @param dataDirectory The directory to store player data files
+     * @param dataDirectory       The directory to store player data files
+     * @param executor            The executor that runs blocking file I/O
+     * @param fsyncPolicy         When written files are forced to disk
+     * @param fsyncIntervalMillis Batch interval for {@link FsyncPolicy#BATCHED}
      */
-    public JsonStorage(Path dataDirectory) {
-        this.dataDirectory = dataDirectory;
-    }
-
-    @Override
-    public void initialize() {
-        try {
-            if (!Files.exists(dataDirectory)) {
-                Files.createDirectories(dataDirectory);
-                LOGGER.info("Created data directory: " + dataDirectory);
-            }
-        } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, "Failed to create data directory", e);
-        }
-    }
-
-    @Override
-    public void shutdown() {
-        // No cleanup needed for file-based storage
+    public JsonStorage(Path dataDirectory, Executor executor, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis) {
+        super(dataDirectory, executor, fsyncPolicy, fsyncIntervalMillis);
     }
 
     @Override
-    public CompletableFuture<PlayerVault> loadVault(UUID playerUuid, int slotsPerVault) {
-        return CompletableFuture.supplyAsync(() -> {
-            Path filePath = getPlayerFile(playerUuid);
-
-            if (!Files.exists(filePath)) {
-                // Create a new vault for this player
-                return new PlayerVault(playerUuid, slotsPerVault);
-            }
-
-            try {
-                String content = Files.readString(filePath);
-                JsonObject json = JsonParser.parseString(content).getAsJsonObject();
-                return PlayerVault.deserialize(json, slotsPerVault);
-            } catch (IOException e) {
-                LOGGER.log(Level.WARNING, "Failed to load vault for " + playerUuid, e);
-                return new PlayerVault(playerUuid, slotsPerVault);
-            } catch (Exception e) {
-                LOGGER.log(Level.WARNING, "Failed to parse vault data for " + playerUuid, e);
-                return new PlayerVault(playerUuid, slotsPerVault);
-            }
-        });
+    protected String getFileExtension() {
+        return FILE_EXTENSION;
     }
 
     @Override
-    public CompletableFuture<Void> saveVault(PlayerVault vault) {
-        return CompletableFuture.runAsync(() -> {
-            Path filePath = getPlayerFile(vault.getPlayerUuid());
-
-            try {
-                JsonObject json = vault.serialize();
-                String content = GSON.toJson(json);
-                Files.writeString(filePath, content);
-                vault.markClean();
-            } catch (IOException e) {
-                LOGGER.log(Level.SEVERE, "Failed to save vault for " + vault.getPlayerUuid(), e);
-            }
-        });
-    }
-
-    @Override
-    public CompletableFuture<Void> deleteVault(UUID playerUuid) {
-        return CompletableFuture.runAsync(() -> {
-            Path filePath = getPlayerFile(playerUuid);
-
-            try {
-                if (Files.exists(filePath)) {
-                    Files.delete(filePath);
-                }
-            } catch (IOException e) {
-                LOGGER.log(Level.WARNING, "Failed to delete vault for " + playerUuid, e);
-            }
-        });
+    protected PlayerVault readVault(InputStream in, UUID playerUuid, int slotsPerVault) throws IOException {
+        return JsonVaultCodec.read(new InputStreamReader(in, StandardCharsets.UTF_8), slotsPerVault);
     }
 
     @Override
-    public CompletableFuture<Boolean> vaultExists(UUID playerUuid) {
-        return CompletableFuture.supplyAsync(() -> {
-            Path filePath = getPlayerFile(playerUuid);
-            return Files.exists(filePath);
-        });
+    protected void writeVault(VaultSnapshot vault, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        JsonVaultCodec.write(vault, writer);
+        writer.flush();
     }
 
     /**
-     * Get the file path for a player's vault data.
+     * Read a vault from a JSON file.
+     * Shared with other backends that migrate existing JSON data.
      *
-     * @param playerUuid The player's UUID
-     * @return The file path
+     * @param file          The JSON vault file
+     * @param slotsPerVault Slots per vault (used if not in the file)
+     * @return The loaded vault
      */
-    private Path getPlayerFile(UUID playerUuid) {
-        return dataDirectory.resolve(playerUuid.toString() + ".json");
+    static PlayerVault readJsonFile(Path file, int slotsPerVault) throws IOException {
+        return FileStorage.readChecked(file,
+                in -> JsonVaultCodec.read(new InputStreamReader(in, StandardCharsets.UTF_8), slotsPerVault));
     }
 }
@@ -0,0 +1,238 @@
+package com.joogiebear.hytalevault.data.storage;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.hypixel.hytale.server.core.inventory.ItemStack;
+import com.joogiebear.hytalevault.data.PageSnapshot;
+import com.joogiebear.hytalevault.data.PlayerVault;
+import com.joogiebear.hytalevault.data.VaultPage;
+import com.joogiebear.hytalevault.data.VaultSnapshot;
+import org.bson.BsonDocument;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Streaming JSON encoding of a player vault.
+ * Reads and writes vault files token by token, going straight between the
+ * file and {@link VaultPage} items without building a JsonObject tree or
+ * holding the whole file as a string.
+ *
+ * Writes from an immutable {@link VaultSnapshot}, so no vault lock is held
+ * while encoding. Produces the same document as {@link PlayerVault#serialize()} and accepts
+ * the legacy "pages", "pageNumber" and "slotsPerPage" keys.
+ */
+public final class JsonVaultCodec {
+
+    private static final Logger LOGGER = Logger.getLogger("HytaleVault");
+
+    private JsonVaultCodec() {
+    }
+
+    /**
+     * Write a vault as pretty-printed JSON.
+     *
+     * @param vault The vault snapshot to write
+     * @param out   The destination (not closed)
+     */
+    public static void write(VaultSnapshot vault, Writer out) throws IOException {
+        JsonWriter writer = new JsonWriter(out);
+        writer.setIndent("  ");
+
+        writer.beginObject();
+        writer.name("playerUuid").value(vault.getPlayerUuid().toString());
+        writer.name("slotsPerVault").value(vault.getSlotsPerVault());
+
+        writer.name("vaults").beginArray();
+        for (PageSnapshot page : vault.getPages()) {
+            if (!page.isEmpty()) {
+                writePage(page, writer);
+            }
+        }
+        writer.endArray();
+
+        writer.endObject();
+        writer.flush();
+    }
+
+    /**
+     * Read a vault from JSON.
+     *
+     * @param in            The source (not closed)
+     * @param slotsPerVault Slots per vault (used if not in the document)
+     * @return The vault
+     */
+    public static PlayerVault read(Reader in, int slotsPerVault) throws IOException {
+        JsonReader reader = new JsonReader(in);
+        UUID playerUuid = null;
+        Integer slots = null;
+        Integer legacySlots = null;
+        List<VaultPage> pages = null;
+        List<VaultPage> legacyPages = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "playerUuid" -> playerUuid = UUID.fromString(reader.nextString());
+                case "slotsPerVault" -> slots = reader.nextInt();
+                case "slotsPerPage" -> legacySlots = reader.nextInt();
+                case "vaults" -> pages = readPages(reader, slotsPerVault);
+                case "pages" -> legacyPages = readPages(reader, slotsPerVault);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (playerUuid == null) {
+            throw new IOException("Vault file is missing playerUuid");
+        }
+
+        int resolvedSlots = slots != null ? slots : legacySlots != null ? legacySlots : slotsPerVault;
+        PlayerVault vault = new PlayerVault(playerUuid, resolvedSlots);
+        // Support both "vaults" and legacy "pages" array keys
+        List<VaultPage> loaded = pages != null ? pages : legacyPages;
+        if (loaded != null) {
+            for (VaultPage page : loaded) {
+                vault.addVault(page);
+            }
+        }
+        vault.markClean();
+        return vault;
+    }
+
+    private static void writePage(PageSnapshot page, JsonWriter writer) throws IOException {
+        writer.beginObject();
+        writer.name("vaultNumber").value(page.getVaultNumber());
+        writer.name("slots").value(page.getSlots());
+
+        writer.name("items").beginArray();
+        for (int slot = page.nextOccupiedSlot(0); slot >= 0; slot = page.nextOccupiedSlot(slot + 1)) {
+            ItemStack item = page.getItem(slot);
+
+            writer.beginObject();
+            writer.name("slot").value(slot);
+            writer.name("itemId").value(item.getItemId());
+            writer.name("quantity").value(item.getQuantity());
+            if (item.getDurability() != 0) {
+                writer.name("durability").value(item.getDurability());
+            }
+            if (item.getMaxDurability() != 0) {
+                writer.name("maxDurability").value(item.getMaxDurability());
+            }
+            if (item.getMetadata() != null) {
+                writer.name("metadata").value(item.getMetadata().toJson());
+            }
+            writer.endObject();
+        }
+        writer.endArray();
+
+        writer.endObject();
+    }
+
+    private static List<VaultPage> readPages(JsonReader reader, int slotsPerVault) throws IOException {
+        List<VaultPage> pages = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            pages.add(readPage(reader, slotsPerVault));
+        }
+        reader.endArray();
+        return pages;
+    }
+
+    private static VaultPage readPage(JsonReader reader, int slotsPerVault) throws IOException {
+        Integer vaultNumber = null;
+        int slots = slotsPerVault;
+        // Items are buffered until the page's slot count is known; keys may come in any order
+        List<Integer> itemSlots = new ArrayList<>();
+        List<ItemStack> items = new ArrayList<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "vaultNumber" -> vaultNumber = reader.nextInt();
+                case "pageNumber" -> {
+                    int legacy = reader.nextInt();
+                    if (vaultNumber == null) vaultNumber = legacy;
+                }
+                case "slots" -> slots = reader.nextInt();
+                case "items" -> {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        readItem(reader, itemSlots, items);
+                    }
+                    reader.endArray();
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (vaultNumber == null) {
+            throw new IOException("Vault entry is missing vaultNumber");
+        }
+        VaultPage page = new VaultPage(vaultNumber, slots);
+        for (int i = 0; i < items.size(); i++) {
+            int slot = itemSlots.get(i);
+            if (slot < 0 || slot >= slots) {
+                LOGGER.warning("Dropping " + items.get(i).getItemId() + " x" + items.get(i).getQuantity()
+                        + " in vault " + vaultNumber + ": slot " + slot + " is outside its " + slots + " slots");
+                continue;
+            }
+            page.setItem(slot, items.get(i));
+        }
+        return page;
+    }
+
+    private static void readItem(JsonReader reader, List<Integer> itemSlots, List<ItemStack> items) throws IOException {
+        Integer slot = null;
+        String itemId = null;
+        int quantity = 1;
+        Double durability = null;
+        Double maxDurability = null;
+        String metadata = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "slot" -> slot = reader.nextInt();
+                case "itemId" -> itemId = reader.nextString();
+                case "quantity" -> quantity = reader.nextInt();
+                case "durability" -> durability = reader.nextDouble();
+                case "maxDurability" -> maxDurability = reader.nextDouble();
+                case "metadata" -> metadata = reader.nextString();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (slot == null || itemId == null || itemId.isEmpty()) {
+            return;
+        }
+
+        ItemStack item;
+        if (durability != null || maxDurability != null || metadata != null) {
+            item = new ItemStack(itemId, quantity,
+                    durability != null ? durability : 0,
+                    maxDurability != null ? maxDurability : 0,
+                    metadata != null ? BsonDocument.parse(metadata) : null);
+        } else {
+            item = new ItemStack(itemId, quantity);
+        }
+
+        if (!item.isEmpty()) {
+            itemSlots.add(slot);
+            items.add(item);
+        }
+    }
+}
@@ -0,0 +1,648 @@
+package com.joogiebear.hytalevault.data.storage;
+
+import com.joogiebear.hytalevault.data.PlayerVault;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+/**
+ * Log-structured storage backend.
+ * Vaults are appended as {@link BinaryVaultCodec} records to a few large,
+ * preallocated segment files that stay memory-mapped. An in-memory index maps
+ * each UUID to its newest record, so a load is a copy out of mapped memory and
+ * a save is a sequential append. A background compactor copies the live
+ * records out of mostly-dead segments and deletes them.
+ *
+ * New segment files are zero-filled before they are mapped, so running out of
+ * disk space fails the append that rolls over with an IOException rather than
+ * crashing the JVM on a write into an unbacked page of the mapping.
+ *
+ * <pre>
+ * record := u32 payloadLength | u8 type | u64 uuidMsb | u64 uuidLsb | u64 sequence
+ *           | u32 itemCount | u32 crc32c | payload
+ * </pre>
+ *
+ * The checksum covers everything after the length, up to the checksum field, plus the payload.
+ * The index is rebuilt by scanning the segments on startup; a zero type byte
+ * marks the end of written data. Records that fail their checksum are copied
+ * to {@code quarantine/} and skipped. The index also remembers each player's
+ * previous record, which is loaded if the newest one is found corrupt.
+ */
+public class SegmentStorage implements StorageBackend {
+
+    private static final Logger LOGGER = Logger.getLogger("HytaleVault");
+
+    public static final String SEGMENT_DIRECTORY = "segments";
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String QUARANTINE_DIRECTORY = "quarantine";
+    private static final int HEADER_SIZE = 4 + 1 + 8 + 8 + 8 + 4 + 4;
+    private static final int CHECKED_HEADER_SIZE = HEADER_SIZE - 4 - 4; // type through itemCount
+    private static final byte TYPE_PUT = 1;
+    private static final byte TYPE_DELETE = 2;
+    // Segments with less than this fraction of live data are compacted
+    private static final double COMPACT_LIVE_RATIO = 0.5;
+
+    private final Path dataDirectory;
+    private final Path segmentDirectory;
+    private final Executor executor;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalMillis;
+    private final int segmentSize;
+    private final long compactIntervalSeconds;
+
+    private final Map<UUID, Location> index;
+    private final NavigableMap<Integer, Segment> segments;
+    private final Object appendLock;
+    private Segment active; // guarded by appendLock
+    private long nextSequence; // guarded by appendLock
+    private boolean closed; // guarded by appendLock
+    private volatile long lastAppendMillis;
+    private ScheduledExecutorService maintenance;
+
+    /**
+     * Create a new segment storage backend.
+     *
+     * @param dataDirectory          The storage directory (segments go in a subdirectory)
+     * @param executor               The executor that runs blocking I/O
+     * @param fsyncPolicy            When appended records are forced to disk
+     * @param fsyncIntervalMillis    Flush interval for {@link FsyncPolicy#BATCHED}
+     * @param segmentSizeMegabytes   Size of each preallocated segment file
+     * @param compactIntervalSeconds How often the compactor looks for mostly-dead segments
+     */
+    public SegmentStorage(Path dataDirectory, Executor executor, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis,
+                          int segmentSizeMegabytes, int compactIntervalSeconds) {
+        this.dataDirectory = dataDirectory;
+        this.segmentDirectory = dataDirectory.resolve(SEGMENT_DIRECTORY);
+        this.executor = executor;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalMillis = Math.max(10, fsyncIntervalMillis);
+        this.segmentSize = (int) Math.min(Integer.MAX_VALUE, Math.max(1, segmentSizeMegabytes) * 1024L * 1024L);
+        this.compactIntervalSeconds = Math.max(1, compactIntervalSeconds);
+        this.index = new ConcurrentHashMap<>();
+        this.segments = new ConcurrentSkipListMap<>();
+        this.appendLock = new Object();
+    }
+
+    @Override
+    public void initialize() {
+        try {
+            Files.createDirectories(segmentDirectory);
+            List<Integer> ids = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(segmentDirectory, "*" + SEGMENT_SUFFIX)) {
+                for (Path file : stream) {
+                    String name = file.getFileName().toString();
+                    try {
+                        ids.add(Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+                    } catch (NumberFormatException e) {
+                        LOGGER.warning("Ignoring unexpected file in segment directory: " + name);
+                    }
+                }
+            }
+            ids.sort(null);
+            if (!ids.isEmpty()) {
+                lastAppendMillis = Files.getLastModifiedTime(segmentPath(ids.get(ids.size() - 1))).toMillis();
+            }
+
+            long start = System.nanoTime();
+            synchronized (appendLock) {
+                for (int i = 0; i < ids.size(); i++) {
+                    Segment segment = openSegment(ids.get(i));
+                    segments.put(segment.id, segment);
+                    scan(segment, i == ids.size() - 1);
+                    active = segment;
+                }
+                if (active == null) {
+                    active = openSegment(1);
+                    segments.put(active.id, active);
+                }
+            }
+            LOGGER.info("Using segment storage backend: " + index.size() + " vaults in " + segments.size()
+                    + " segments, indexed in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to open segment storage", e);
+            return;
+        }
+
+        maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "HytaleVault-SegmentCompactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(this::compact, compactIntervalSeconds, compactIntervalSeconds, TimeUnit.SECONDS);
+        if (fsyncPolicy == FsyncPolicy.BATCHED) {
+            maintenance.scheduleWithFixedDelay(this::forceActive, fsyncIntervalMillis, fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        if (maintenance != null) {
+            maintenance.shutdown();
+            try {
+                maintenance.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (appendLock) {
+            // Late saves must not write into mappings whose channels are closing
+            closed = true;
+            if (active != null && fsyncPolicy != FsyncPolicy.NEVER) {
+                active.buffer.force();
+            }
+            for (Segment segment : segments.values()) {
+                segment.close();
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<PlayerVault> loadVault(UUID playerUuid, int slotsPerVault) {
+        return BackendTasks.load(playerUuid, slotsPerVault, executor, () -> {
+            Location location = index.get(playerUuid);
+            if (location == null) {
+                return readLegacyVault(playerUuid, slotsPerVault);
+            }
+            if (location.deleted) {
+                return null;
+            }
+            try {
+                return decode(location, slotsPerVault);
+            } catch (CorruptVaultException e) {
+                LOGGER.log(Level.SEVERE, "Vault record for " + playerUuid + " is corrupt", e);
+                return recover(playerUuid, location, slotsPerVault);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> saveVault(PlayerVault vault) {
+        return BackendTasks.save(vault, executor, snapshot -> {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(1024);
+            BinaryVaultCodec.encode(snapshot, payload);
+            append(snapshot.getPlayerUuid(), TYPE_PUT, payload.toByteArray(), snapshot.getTotalItemCount());
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteVault(UUID playerUuid) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                append(playerUuid, TYPE_DELETE, new byte[0], 0);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to delete vault for " + playerUuid, e);
+            }
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> vaultExists(UUID playerUuid) {
+        return CompletableFuture.supplyAsync(() -> {
+            Location location = index.get(playerUuid);
+            if (location != null) {
+                return !location.deleted;
+            }
+            return FileStorage.locateFile(dataDirectory, playerUuid, BinaryStorage.FILE_EXTENSION) != null
+                    || FileStorage.locateFile(dataDirectory, playerUuid, JsonStorage.FILE_EXTENSION) != null;
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<StorageStats> getStats() {
+        long players = 0;
+        long items = 0;
+        for (Location location : index.values()) {
+            if (!location.deleted) {
+                players++;
+                items += location.itemCount;
+            }
+        }
+        long bytes = 0;
+        for (Segment segment : segments.values()) {
+            bytes += segment.writePosition;
+        }
+        return CompletableFuture.completedFuture(new StorageStats(players, items, bytes, lastAppendMillis, true));
+    }
+
+    /**
+     * Append a record to the active segment and point the index at it.
+     */
+    private void append(UUID playerUuid, byte type, byte[] payload, int itemCount) throws IOException {
+        synchronized (appendLock) {
+            Location location = appendLocked(playerUuid, type, payload, itemCount);
+            if (fsyncPolicy == FsyncPolicy.ALWAYS || fsyncPolicy == FsyncPolicy.GROUP) {
+                location.segment.buffer.force(location.offset, HEADER_SIZE + location.length);
+            }
+        }
+    }
+
+    // Caller holds appendLock
+    private Location appendLocked(UUID playerUuid, byte type, byte[] payload, int itemCount) throws IOException {
+        if (closed || active == null) {
+            throw new IOException("Segment storage is not open");
+        }
+        int size = HEADER_SIZE + payload.length;
+        if (size > segmentSize) {
+            throw new IOException("Vault record of " + size + " bytes exceeds the segment size");
+        }
+        if (active.writePosition + size > segmentSize) {
+            rollover();
+        }
+
+        long sequence = nextSequence++;
+        ByteBuffer record = ByteBuffer.allocate(size);
+        record.putInt(payload.length);
+        record.put(type);
+        record.putLong(playerUuid.getMostSignificantBits());
+        record.putLong(playerUuid.getLeastSignificantBits());
+        record.putLong(sequence);
+        record.putInt(itemCount);
+        record.putInt(checksum(record.array(), 4, CHECKED_HEADER_SIZE, payload));
+        record.put(payload);
+
+        int offset = active.writePosition;
+        active.buffer.put(offset, record.array());
+        active.writePosition += size;
+        lastAppendMillis = System.currentTimeMillis();
+
+        Location location = new Location(active, offset, payload.length, sequence, itemCount, type == TYPE_DELETE,
+                previousOf(index.get(playerUuid)));
+        apply(playerUuid, location);
+        return location;
+    }
+
+    // Caller holds appendLock
+    private void rollover() throws IOException {
+        if (fsyncPolicy != FsyncPolicy.NEVER) {
+            active.buffer.force();
+        }
+        Segment next = openSegment(active.id + 1);
+        segments.put(next.id, next);
+        active = next;
+    }
+
+    /**
+     * Make a record the current one for its player if it is newer than what the index has.
+     */
+    private void apply(UUID playerUuid, Location location) {
+        Location previous = index.get(playerUuid);
+        if (previous != null && previous.sequence > location.sequence) {
+            return;
+        }
+        index.put(playerUuid, location);
+        location.segment.liveBytes.addAndGet(location.size());
+        if (previous != null) {
+            previous.segment.liveBytes.addAndGet(-previous.size());
+        }
+    }
+
+    /**
+     * Decode a record. Anything wrong with its content is reported as corruption.
+     */
+    private PlayerVault decode(Location location, int slotsPerVault) throws IOException {
+        byte[] payload = read(location);
+        try {
+            return BinaryVaultCodec.decode(new ByteArrayInputStream(payload), slotsPerVault);
+        } catch (IOException | RuntimeException e) {
+            throw new CorruptVaultException("Failed to decode record in segment " + location.segment.id
+                    + " at offset " + location.offset, e);
+        }
+    }
+
+    /**
+     * Recover from a corrupt record: quarantine a copy and fall back to the
+     * player's previous record. The caller replays the slot journal on top.
+     */
+    private PlayerVault recover(UUID playerUuid, Location corrupt, int slotsPerVault) {
+        quarantine(corrupt);
+        Location previous = corrupt.previous;
+        if (previous != null && !previous.deleted && segments.get(previous.segment.id) == previous.segment) {
+            try {
+                PlayerVault vault = decode(previous, slotsPerVault);
+                // Append a good record on the next save
+                vault.markDirty();
+                LOGGER.warning("Restored vault for " + playerUuid + " from its previous save");
+                return vault;
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Previous vault record for " + playerUuid + " is corrupt too", e);
+                quarantine(previous);
+            }
+        }
+        LOGGER.severe("No intact vault record for " + playerUuid + "; starting from the slot journal. "
+                + "The damaged record is kept in " + dataDirectory.resolve(QUARANTINE_DIRECTORY));
+        return new PlayerVault(playerUuid, slotsPerVault);
+    }
+
+    /**
+     * Copy a record that failed validation out of its segment for later inspection.
+     */
+    private void quarantine(Segment segment, int offset, int size) {
+        try {
+            Path directory = dataDirectory.resolve(QUARANTINE_DIRECTORY);
+            Files.createDirectories(directory);
+            byte[] record = new byte[size];
+            segment.buffer.get(offset, record);
+            Path target = directory.resolve(String.format("%06d-%d.rec", segment.id, offset));
+            Files.write(target, record);
+            LOGGER.warning("Quarantined corrupt record as " + target);
+        } catch (IOException | IndexOutOfBoundsException e) {
+            LOGGER.log(Level.WARNING, "Failed to quarantine record in segment " + segment.id, e);
+        }
+    }
+
+    private void quarantine(Location location) {
+        quarantine(location.segment, location.offset, location.size());
+    }
+
+    /**
+     * Copy a record's payload out of mapped memory, verifying its checksum.
+     *
+     * @throws CorruptVaultException If the checksum does not match
+     */
+    private byte[] read(Location location) throws IOException {
+        ByteBuffer buffer = location.segment.buffer;
+        byte[] header = new byte[CHECKED_HEADER_SIZE];
+        byte[] payload = new byte[location.length];
+        buffer.get(location.offset + 4, header);
+        int expected = buffer.getInt(location.offset + 4 + CHECKED_HEADER_SIZE);
+        buffer.get(location.offset + HEADER_SIZE, payload);
+        if (checksum(header, 0, header.length, payload) != expected) {
+            throw new CorruptVaultException("Checksum mismatch in segment " + location.segment.id + " at offset " + location.offset);
+        }
+        return payload;
+    }
+
+    /**
+     * Rebuild index entries from a segment and find where its written data ends.
+     *
+     * @param last Whether this is the newest segment, where a crash can leave a torn tail
+     */
+    private void scan(Segment segment, boolean last) {
+        ByteBuffer buffer = segment.buffer;
+        int offset = 0;
+        while (offset + HEADER_SIZE <= segmentSize) {
+            byte type = buffer.get(offset + 4);
+            if (type != TYPE_PUT && type != TYPE_DELETE) {
+                break;
+            }
+            int length = buffer.getInt(offset);
+            if (length < 0 || offset + HEADER_SIZE + length > segmentSize) {
+                LOGGER.warning("Truncated record in segment " + segment.id + " at offset " + offset);
+                break;
+            }
+            UUID playerUuid = new UUID(buffer.getLong(offset + 5), buffer.getLong(offset + 13));
+            long sequence = buffer.getLong(offset + 21);
+            int itemCount = buffer.getInt(offset + 29);
+            Location location = new Location(segment, offset, length, sequence, itemCount, type == TYPE_DELETE,
+                    previousOf(index.get(playerUuid)));
+            try {
+                read(location);
+                apply(playerUuid, location);
+                nextSequence = Math.max(nextSequence, sequence + 1);
+            } catch (IOException e) {
+                // Torn by a crash mid-append, or damaged on disk; the header can't be trusted
+                LOGGER.warning("Corrupt record in segment " + segment.id + " at offset " + offset + "; skipping it");
+                quarantine(location);
+            }
+            offset += HEADER_SIZE + length;
+        }
+        segment.writePosition = offset;
+        if (last && offset < segmentSize) {
+            // Zero the tail so a torn record is not mistaken for data after new appends
+            buffer.put(offset, new byte[Math.min(HEADER_SIZE, segmentSize - offset)]);
+        }
+    }
+
+    /**
+     * Copy live records out of sealed segments that are mostly dead, then delete them.
+     * The index is walked once per run, however many segments qualify.
+     */
+    private void compact() {
+        Map<Segment, List<UUID>> victims = new LinkedHashMap<>();
+        for (Segment segment : segments.values()) {
+            synchronized (appendLock) {
+                if (segment == active || closed) {
+                    continue;
+                }
+            }
+            if (segment.liveBytes.get() <= segment.writePosition * COMPACT_LIVE_RATIO) {
+                victims.put(segment, new ArrayList<>());
+            }
+        }
+        if (victims.isEmpty()) {
+            return;
+        }
+
+        for (Map.Entry<UUID, Location> entry : index.entrySet()) {
+            Location location = entry.getValue();
+            List<UUID> owners = victims.get(location.segment);
+            if (owners != null) {
+                owners.add(entry.getKey());
+            } else if (location.previous != null && victims.containsKey(location.previous.segment)) {
+                // Don't keep the mapping of a deleted segment alive for a fallback
+                synchronized (appendLock) {
+                    index.replace(entry.getKey(), location, location.withoutPrevious());
+                }
+            }
+        }
+
+        for (Map.Entry<Segment, List<UUID>> victim : victims.entrySet()) {
+            try {
+                compactSegment(victim.getKey(), victim.getValue());
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Failed to compact segment " + victim.getKey().id, e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Move a segment's live records to the active segment and delete it.
+     *
+     * @param owners Players whose newest record was in the segment when the index was walked
+     */
+    private void compactSegment(Segment segment, List<UUID> owners) throws IOException {
+        boolean oldest = segments.firstKey() == segment.id;
+        int moved = 0;
+        for (UUID playerUuid : owners) {
+            Location location = index.get(playerUuid);
+            if (location == null || location.segment != segment) {
+                continue; // Superseded since the index was walked
+            }
+            byte[] payload = location.deleted ? new byte[0] : read(location);
+            synchronized (appendLock) {
+                if (index.get(playerUuid) != location) {
+                    continue; // Superseded while we were copying
+                }
+                if (location.deleted && oldest) {
+                    // No older segment can hold a record this tombstone hides
+                    index.remove(playerUuid, location);
+                    segment.liveBytes.addAndGet(-location.size());
+                    continue;
+                }
+                Location copy = appendLocked(playerUuid, location.deleted ? TYPE_DELETE : TYPE_PUT,
+                        payload, location.itemCount);
+                index.replace(playerUuid, copy, copy.withoutPrevious());
+                moved++;
+            }
+        }
+
+        synchronized (appendLock) {
+            if (fsyncPolicy != FsyncPolicy.NEVER) {
+                active.buffer.force();
+            }
+            segments.remove(segment.id);
+        }
+        segment.close();
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            // Still mapped on some platforms; its records are all superseded, so it is harmless
+            LOGGER.log(Level.FINE, "Could not delete compacted segment " + segment.path, e);
+        }
+        LOGGER.fine("Compacted segment " + segment.id + " (" + moved + " live records moved)");
+    }
+
+    private void forceActive() {
+        synchronized (appendLock) {
+            if (active != null) {
+                active.buffer.force();
+            }
+        }
+    }
+
+    private Segment openSegment(int id) throws IOException {
+        Path path = segmentPath(id);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            preallocate(channel);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            return new Segment(id, path, channel, buffer);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Fill a segment file with zeros up to the segment size. Mapping past the
+     * end only creates a sparse file, whose blocks are allocated on first
+     * touch; a full disk would then surface as a fault inside the mapping.
+     */
+    private void preallocate(FileChannel channel) throws IOException {
+        long position = channel.size();
+        if (position >= segmentSize) {
+            return;
+        }
+        ByteBuffer zeros = ByteBuffer.allocate(1024 * 1024);
+        while (position < segmentSize) {
+            zeros.clear().limit((int) Math.min(zeros.capacity(), segmentSize - position));
+            position += channel.write(zeros, position);
+        }
+        if (fsyncPolicy != FsyncPolicy.NEVER) {
+            channel.force(true);
+        }
+    }
+
+    private Path segmentPath(int id) {
+        return segmentDirectory.resolve(String.format("%06d%s", id, SEGMENT_SUFFIX));
+    }
+
+    private PlayerVault readLegacyVault(UUID playerUuid, int slotsPerVault) throws IOException {
+        PlayerVault vault;
+        Path binaryFile = FileStorage.locateFile(dataDirectory, playerUuid, BinaryStorage.FILE_EXTENSION);
+        if (binaryFile != null) {
+            vault = FileStorage.readChecked(binaryFile, in -> BinaryVaultCodec.decode(in, slotsPerVault));
+        } else {
+            Path jsonFile = FileStorage.locateFile(dataDirectory, playerUuid, JsonStorage.FILE_EXTENSION);
+            if (jsonFile == null) {
+                return null;
+            }
+            vault = JsonStorage.readJsonFile(jsonFile, slotsPerVault);
+        }
+        // Appended to a segment on the next save; the old file is kept as a fallback copy
+        vault.markDirty();
+        LOGGER.info("Migrating vault for " + playerUuid + " into segment storage");
+        return vault;
+    }
+
+    private static int checksum(byte[] header, int offset, int length, byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(header, offset, length);
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * A segment file and its mapping.
+     */
+    private static final class Segment {
+        private final int id;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer; // absolute access only; shared by all threads
+        private final AtomicLong liveBytes;
+        private volatile int writePosition;
+
+        private Segment(int id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.liveBytes = new AtomicLong();
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Failed to close segment " + id, e);
+            }
+        }
+    }
+
+    private static Location previousOf(Location current) {
+        return current == null || current.deleted ? null : current.withoutPrevious();
+    }
+
+    /**
+     * Where a player's newest record lives, plus the record before it (one level only).
+     */
+    private record Location(Segment segment, int offset, int length, long sequence, int itemCount, boolean deleted,
+                            Location previous) {
+        int size() {
+            return HEADER_SIZE + length;
+        }
+
+        Location withoutPrevious() {
+            return previous == null ? this : new Location(segment, offset, length, sequence, itemCount, deleted, null);
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package com.joogiebear.hytalevault.data.storage;
+
+import com.hypixel.hytale.server.core.inventory.ItemStack;
+import com.joogiebear.hytalevault.data.PlayerVault;
+import com.joogiebear.hytalevault.data.VaultPage;
+import org.bson.BsonDocument;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind journal of individual slot changes.
+ * Each player gets a compact append-only file of (vault, slot, item) deltas.
+ * The journal is replayed over the snapshot on load and discarded once a
+ * full save has folded it into the snapshot.
+ *
+ * Lifecycle of a compaction: {@link #rotate(UUID)} seals the active journal,
+ * the snapshot is saved, then {@link #commit(UUID)} deletes the sealed part.
+ * If the save fails the sealed part stays on disk and is merged into the next rotation.
+ */
+public class SlotJournal {
+
+    private static final Logger LOGGER = Logger.getLogger("HytaleVault");
+    private static final String ACTIVE_SUFFIX = ".journal";
+    private static final String SEALED_SUFFIX = ".journal.old";
+
+    private static final byte OP_CLEAR = 0;
+    private static final byte OP_SET = 1;
+    private static final byte OP_CLEAR_ALL = 2;
+
+    private final Path directory;
+    private final Map<UUID, JournalFile> journals;
+
+    /**
+     * Create a new slot journal.
+     *
+     * @param directory The directory to store journal files
+     */
+    public SlotJournal(Path directory) {
+        this.directory = directory;
+        this.journals = new ConcurrentHashMap<>();
+    }
+
+    public void initialize() {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to create journal directory", e);
+        }
+    }
+
+    /**
+     * Close all open journal streams. Unfolded entries stay on disk for replay.
+     */
+    public void shutdown() {
+        for (JournalFile journal : journals.values()) {
+            synchronized (journal) {
+                journal.closeStream();
+            }
+        }
+        journals.clear();
+    }
+
+    /**
+     * Append a single slot change. This is one small sequential write,
+     * independent of how many items the vault holds.
+     *
+     * @param playerUuid  The vault owner
+     * @param vaultNumber The vault number (1-indexed)
+     * @param slot        The slot index
+     * @param item        The new item, or null if the slot was cleared
+     */
+    public void append(UUID playerUuid, int vaultNumber, int slot, ItemStack item) throws IOException {
+        byte[] record = encodeRecord(vaultNumber, slot, item);
+        JournalFile journal = journals.computeIfAbsent(playerUuid, JournalFile::new);
+        synchronized (journal) {
+            OutputStream out = journal.openStream();
+            writeInt(out, record.length);
+            out.write(record);
+            out.flush();
+            journal.pending++;
+        }
+    }
+
+    /**
+     * Append the changes from one user action as a single write and flush.
+     *
+     * @param playerUuid   The vault owner
+     * @param vaultNumber  The vault number (1-indexed)
+     * @param changedSlots The slots that changed
+     * @param items        Supplies the new item for each slot (null if cleared)
+     */
+    public void appendAll(UUID playerUuid, int vaultNumber, BitSet changedSlots, IntFunction<ItemStack> items) throws IOException {
+        ByteArrayOutputStream batch = new ByteArrayOutputStream(64 * changedSlots.cardinality());
+        int count = 0;
+        for (int slot = changedSlots.nextSetBit(0); slot >= 0; slot = changedSlots.nextSetBit(slot + 1)) {
+            byte[] record = encodeRecord(vaultNumber, slot, items.apply(slot));
+            writeInt(batch, record.length);
+            batch.write(record);
+            count++;
+        }
+        if (count == 0) {
+            return;
+        }
+        JournalFile journal = journals.computeIfAbsent(playerUuid, JournalFile::new);
+        synchronized (journal) {
+            OutputStream out = journal.openStream();
+            batch.writeTo(out);
+            out.flush();
+            journal.pending += count;
+        }
+    }
+
+    /**
+     * Append a record that empties every page of the vault. Replay applies it
+     * in order, so entries journaled before a clear never resurrect items if
+     * the save that follows the clear fails.
+     *
+     * @param playerUuid The vault owner
+     */
+    public void appendClear(UUID playerUuid) throws IOException {
+        JournalFile journal = journals.computeIfAbsent(playerUuid, JournalFile::new);
+        synchronized (journal) {
+            OutputStream out = journal.openStream();
+            writeInt(out, 5);
+            writeInt(out, 0); // vault 0, slot 0
+            out.write(OP_CLEAR_ALL);
+            out.flush();
+            journal.pending++;
+        }
+    }
+
+    /**
+     * Check whether a player has journaled changes that are not yet in the snapshot.
+     */
+    public boolean hasPending(UUID playerUuid) {
+        JournalFile journal = journals.get(playerUuid);
+        return journal != null && journal.pending > 0;
+    }
+
+    /**
+     * Get all players with journaled changes waiting for compaction.
+     */
+    public Set<UUID> getPendingPlayers() {
+        return journals.entrySet().stream()
+                .filter(entry -> entry.getValue().pending > 0)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Seal the active journal before a snapshot save.
+     * Changes appended after this call go to a fresh journal and survive the commit.
+     */
+    public void rotate(UUID playerUuid) throws IOException {
+        JournalFile journal = journals.computeIfAbsent(playerUuid, JournalFile::new);
+        synchronized (journal) {
+            journal.closeStream();
+            Path active = getActiveFile(playerUuid);
+            Path sealed = getSealedFile(playerUuid);
+            if (Files.exists(active)) {
+                if (Files.exists(sealed)) {
+                    // A previous save failed; keep its entries ahead of ours
+                    try (OutputStream out = Files.newOutputStream(sealed, StandardOpenOption.APPEND)) {
+                        Files.copy(active, out);
+                    }
+                    Files.delete(active);
+                } else {
+                    Files.move(active, sealed, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            journal.pending = 0;
+        }
+    }
+
+    /**
+     * Discard the sealed journal once the snapshot containing it has been written.
+     */
+    public void commit(UUID playerUuid) {
+        try {
+            Files.deleteIfExists(getSealedFile(playerUuid));
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to discard compacted journal for " + playerUuid, e);
+        }
+    }
+
+    /**
+     * Close a player's journal stream (e.g. on disconnect).
+     */
+    public void close(UUID playerUuid) {
+        JournalFile journal = journals.get(playerUuid);
+        if (journal == null) {
+            return;
+        }
+        synchronized (journal) {
+            journal.closeStream();
+            if (journal.pending == 0) {
+                journals.remove(playerUuid, journal);
+            }
+        }
+    }
+
+    /**
+     * Replay any journaled changes over a freshly loaded snapshot.
+     * A torn record at the end of a journal (crash mid-append) is ignored.
+     *
+     * @param vault The vault loaded from the snapshot
+     * @return The number of changes applied
+     */
+    public int replay(PlayerVault vault) {
+        UUID playerUuid = vault.getPlayerUuid();
+        int applied = 0;
+        try {
+            applied += replayFile(getSealedFile(playerUuid), vault);
+            applied += replayFile(getActiveFile(playerUuid), vault);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to replay slot journal for " + playerUuid, e);
+        }
+        if (applied > 0) {
+            // Replayed pages are dirty; leave the entries on disk and flag them so the compactor folds them in
+            JournalFile journal = journals.computeIfAbsent(playerUuid, JournalFile::new);
+            synchronized (journal) {
+                journal.pending += applied;
+            }
+        }
+        return applied;
+    }
+
+    private int replayFile(Path file, PlayerVault vault) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        int applied = 0;
+        long validLength = 0;
+        boolean torn = false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                byte[] record;
+                try {
+                    int length = in.readInt();
+                    record = length > 0 ? in.readNBytes(length) : null;
+                    if (record == null || record.length < length) {
+                        torn = true;
+                        break;
+                    }
+                } catch (EOFException e) {
+                    // Clean end of file, or a partially written length prefix
+                    torn = Files.size(file) != validLength;
+                    break;
+                }
+                applyRecord(record, vault);
+                validLength += 4 + record.length;
+                applied++;
+            }
+        }
+        if (torn) {
+            // Cut the torn tail so later appends stay readable
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+            }
+            LOGGER.warning("Truncated torn slot journal record in " + file.getFileName());
+        }
+        return applied;
+    }
+
+    private static byte[] encodeRecord(int vaultNumber, int slot, ItemStack item) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeShort(vaultNumber);
+        out.writeShort(slot);
+        if (item == null || item.isEmpty()) {
+            out.writeByte(OP_CLEAR);
+        } else {
+            out.writeByte(OP_SET);
+            out.writeUTF(item.getItemId());
+            out.writeInt(item.getQuantity());
+            out.writeDouble(item.getDurability());
+            out.writeDouble(item.getMaxDurability());
+            if (item.getMetadata() != null) {
+                byte[] metadata = item.getMetadata().toJson().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(metadata.length);
+                out.write(metadata);
+            } else {
+                out.writeInt(-1);
+            }
+        }
+        return buffer.toByteArray();
+    }
+
+    private static void applyRecord(byte[] record, PlayerVault vault) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        int vaultNumber = in.readUnsignedShort();
+        int slot = in.readUnsignedShort();
+        byte op = in.readByte();
+        if (op == OP_CLEAR_ALL) {
+            vault.clearAll();
+            return;
+        }
+
+        VaultPage page = vault.getOrCreateVault(vaultNumber, vault.getSlotsPerVault());
+        if (page == null) {
+            return;
+        }
+        if (op == OP_CLEAR) {
+            page.clearSlot(slot);
+            return;
+        }
+
+        String itemId = in.readUTF();
+        int quantity = in.readInt();
+        double durability = in.readDouble();
+        double maxDurability = in.readDouble();
+        int metadataLength = in.readInt();
+        BsonDocument metadata = null;
+        if (metadataLength >= 0) {
+            metadata = BsonDocument.parse(new String(in.readNBytes(metadataLength), StandardCharsets.UTF_8));
+        }
+
+        ItemStack item;
+        if (durability != 0 || maxDurability != 0 || metadata != null) {
+            item = new ItemStack(itemId, quantity, durability, maxDurability, metadata);
+        } else {
+            item = new ItemStack(itemId, quantity);
+        }
+        page.setItem(slot, item);
+    }
+
+    private static void writeInt(OutputStream out, int value) throws IOException {
+        out.write((value >>> 24) & 0xFF);
+        out.write((value >>> 16) & 0xFF);
+        out.write((value >>> 8) & 0xFF);
+        out.write(value & 0xFF);
+    }
+
+    private Path getActiveFile(UUID playerUuid) {
+        return directory.resolve(playerUuid.toString() + ACTIVE_SUFFIX);
+    }
+
+    private Path getSealedFile(UUID playerUuid) {
+        return directory.resolve(playerUuid.toString() + SEALED_SUFFIX);
+    }
+
+    /**
+     * Per-player journal state. Guarded by its own monitor.
+     */
+    private class JournalFile {
+        private final UUID playerUuid;
+        private OutputStream stream;
+        private volatile int pending;
+
+        private JournalFile(UUID playerUuid) {
+            this.playerUuid = playerUuid;
+        }
+
+        private OutputStream openStream() throws IOException {
+            if (stream == null) {
+                stream = new BufferedOutputStream(Files.newOutputStream(getActiveFile(playerUuid),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE));
+            }
+            return stream;
+        }
+
+        private void closeStream() {
+            if (stream == null) {
+                return;
+            }
+            try {
+                stream.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to close slot journal for " + playerUuid, e);
+            }
+            stream = null;
+        }
+    }
+}
@@ -0,0 +1,465 @@
+package com.joogiebear.hytalevault.data.storage;
+
+import com.joogiebear.hytalevault.data.PageSnapshot;
+import com.joogiebear.hytalevault.data.PlayerVault;
+import com.joogiebear.hytalevault.data.VaultSnapshot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Embedded SQLite storage backend.
+ * Stores one row per player and one row per non-empty vault page, with the
+ * page contents as a {@link BinaryVaultCodec} blob. Runs in WAL mode so loads
+ * never wait on saves, and a save only rewrites the pages the vault reports
+ * as dirty; pages that were emptied are deleted.
+ *
+ * Writes go through one connection; reads borrow from a small pool of
+ * {@value #READ_CONNECTIONS} connections, so that many loads run side by side.
+ * If the database could not be opened every operation fails with an error
+ * instead of handing out empty vaults.
+ *
+ * <pre>
+ * vault_players(player_uuid TEXT PK, slots_per_vault, item_count, updated_at)
+ * vault_pages(player_uuid, vault_number, slots, item_count, data BLOB, PK(player_uuid, vault_number))
+ * </pre>
+ *
+ * Players that only have a JSON file in the data directory are read from it
+ * and written to the database on their next save.
+ *
+ * A page row that cannot be decoded is moved to {@code vault_quarantine} and
+ * the rest of the vault loads normally, with the slot journal replayed on top.
+ */
+public class SqliteStorage implements StorageBackend {
+
+    private static final Logger LOGGER = Logger.getLogger("HytaleVault");
+
+    public static final String DATABASE_FILE = "vaults.db";
+    private static final int READ_CONNECTIONS = 4;
+
+    private static final String UPSERT_PLAYER = """
+            INSERT INTO vault_players (player_uuid, slots_per_vault, item_count, updated_at) VALUES (?, ?, ?, ?)
+            ON CONFLICT(player_uuid) DO UPDATE SET slots_per_vault = excluded.slots_per_vault,
+                item_count = excluded.item_count, updated_at = excluded.updated_at""";
+    private static final String UPSERT_PAGE = """
+            INSERT INTO vault_pages (player_uuid, vault_number, slots, item_count, data) VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT(player_uuid, vault_number) DO UPDATE SET slots = excluded.slots,
+                item_count = excluded.item_count, data = excluded.data""";
+    private static final String DELETE_PAGE = "DELETE FROM vault_pages WHERE player_uuid = ? AND vault_number = ?";
+    private static final String QUARANTINE_PAGE = """
+            INSERT INTO vault_quarantine (player_uuid, vault_number, data, quarantined_at)
+            SELECT player_uuid, vault_number, data, ? FROM vault_pages WHERE player_uuid = ? AND vault_number = ?""";
+
+    private final Path dataDirectory;
+    private final Executor executor;
+    private final FsyncPolicy fsyncPolicy;
+
+    private final Object writeLock = new Object();
+    private final BlockingQueue<Connection> readConnections;
+    private Connection writeConnection; // guarded by writeLock
+    private volatile boolean open;
+
+    /**
+     * Create a new SQLite storage backend.
+     *
+     * @param dataDirectory The directory holding the database file (and any legacy JSON files)
+     * @param executor      The executor that runs blocking database I/O
+     * @param fsyncPolicy   Mapped to SQLite's synchronous setting
+     */
+    public SqliteStorage(Path dataDirectory, Executor executor, FsyncPolicy fsyncPolicy) {
+        this.dataDirectory = dataDirectory;
+        this.executor = executor;
+        this.fsyncPolicy = fsyncPolicy;
+        this.readConnections = new ArrayBlockingQueue<>(READ_CONNECTIONS);
+    }
+
+    @Override
+    public void initialize() {
+        try {
+            Files.createDirectories(dataDirectory);
+            // Plugin class loaders are not always visible to DriverManager's service lookup
+            Class.forName("org.sqlite.JDBC");
+
+            String url = "jdbc:sqlite:" + dataDirectory.resolve(DATABASE_FILE).toAbsolutePath();
+            writeConnection = DriverManager.getConnection(url);
+
+            try (Statement statement = writeConnection.createStatement()) {
+                statement.execute("PRAGMA journal_mode=WAL");
+                statement.execute("PRAGMA synchronous=" + synchronousMode());
+                statement.execute("PRAGMA busy_timeout=5000");
+                statement.execute("""
+                        CREATE TABLE IF NOT EXISTS vault_players (
+                            player_uuid TEXT PRIMARY KEY,
+                            slots_per_vault INTEGER NOT NULL,
+                            item_count INTEGER NOT NULL,
+                            updated_at INTEGER NOT NULL)""");
+                statement.execute("""
+                        CREATE TABLE IF NOT EXISTS vault_pages (
+                            player_uuid TEXT NOT NULL,
+                            vault_number INTEGER NOT NULL,
+                            slots INTEGER NOT NULL,
+                            item_count INTEGER NOT NULL,
+                            data BLOB NOT NULL,
+                            PRIMARY KEY (player_uuid, vault_number)) WITHOUT ROWID""");
+                statement.execute("CREATE INDEX IF NOT EXISTS idx_vault_players_updated ON vault_players (updated_at)");
+                statement.execute("""
+                        CREATE TABLE IF NOT EXISTS vault_quarantine (
+                            player_uuid TEXT NOT NULL,
+                            vault_number INTEGER NOT NULL,
+                            data BLOB NOT NULL,
+                            quarantined_at INTEGER NOT NULL)""");
+            }
+            for (int i = 0; i < READ_CONNECTIONS; i++) {
+                Connection readConnection = DriverManager.getConnection(url);
+                try (Statement statement = readConnection.createStatement()) {
+                    statement.execute("PRAGMA busy_timeout=5000");
+                }
+                readConnections.add(readConnection);
+            }
+            writeConnection.setAutoCommit(false);
+            open = true;
+            LOGGER.info("Using SQLite storage backend: " + dataDirectory.resolve(DATABASE_FILE));
+        } catch (IOException | ClassNotFoundException | SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to open SQLite database; vault loads and saves will fail", e);
+            closeAll();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        if (open) {
+            synchronized (writeLock) {
+                try (Statement statement = writeConnection.createStatement()) {
+                    statement.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+                } catch (SQLException e) {
+                    LOGGER.log(Level.WARNING, "Failed to checkpoint SQLite WAL", e);
+                }
+            }
+        }
+        closeAll();
+    }
+
+    /**
+     * Mark the database closed and close every connection. Read connections
+     * still borrowed are closed when they are returned.
+     */
+    private void closeAll() {
+        open = false;
+        synchronized (writeLock) {
+            if (writeConnection != null) {
+                closeQuietly(writeConnection);
+                writeConnection = null;
+            }
+        }
+        Connection connection;
+        while ((connection = readConnections.poll()) != null) {
+            closeQuietly(connection);
+        }
+    }
+
+    @Override
+    public CompletableFuture<PlayerVault> loadVault(UUID playerUuid, int slotsPerVault) {
+        return BackendTasks.load(playerUuid, slotsPerVault, executor, () -> {
+            PlayerVault vault = readVault(playerUuid);
+            return vault != null ? vault : readLegacyVault(playerUuid, slotsPerVault);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> saveVault(PlayerVault vault) {
+        return BackendTasks.save(vault, executor, this::writeVault);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteVault(UUID playerUuid) {
+        return CompletableFuture.runAsync(() -> {
+            synchronized (writeLock) {
+                try {
+                    requireOpen();
+                } catch (SQLException e) {
+                    LOGGER.log(Level.WARNING, "Failed to delete vault for " + playerUuid, e);
+                    return;
+                }
+                try (PreparedStatement pages = writeConnection.prepareStatement("DELETE FROM vault_pages WHERE player_uuid = ?");
+                     PreparedStatement player = writeConnection.prepareStatement("DELETE FROM vault_players WHERE player_uuid = ?")) {
+                    pages.setString(1, playerUuid.toString());
+                    pages.executeUpdate();
+                    player.setString(1, playerUuid.toString());
+                    player.executeUpdate();
+                    writeConnection.commit();
+                } catch (SQLException e) {
+                    rollbackQuietly();
+                    LOGGER.log(Level.WARNING, "Failed to delete vault for " + playerUuid, e);
+                }
+            }
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> vaultExists(UUID playerUuid) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return withReadConnection(connection -> {
+                    try (PreparedStatement statement = connection.prepareStatement(
+                            "SELECT 1 FROM vault_players WHERE player_uuid = ?")) {
+                        statement.setString(1, playerUuid.toString());
+                        try (ResultSet result = statement.executeQuery()) {
+                            return result.next();
+                        }
+                    }
+                });
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Failed to check vault for " + playerUuid, e);
+                return false;
+            }
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<StorageStats> getStats() {
+        return CompletableFuture.supplyAsync(() -> {
+            long bytes = 0;
+            for (String suffix : new String[]{"", "-wal"}) {
+                try {
+                    bytes += Files.size(dataDirectory.resolve(DATABASE_FILE + suffix));
+                } catch (IOException e) {
+                    // No WAL right after a checkpoint
+                }
+            }
+            long fileBytes = bytes;
+            try {
+                return withReadConnection(connection -> {
+                    try (Statement statement = connection.createStatement();
+                         ResultSet result = statement.executeQuery(
+                                 "SELECT COUNT(*), COALESCE(SUM(item_count), 0), COALESCE(MAX(updated_at), 0) FROM vault_players")) {
+                        result.next();
+                        return new StorageStats(result.getLong(1), result.getLong(2), fileBytes, result.getLong(3), true);
+                    }
+                });
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    private PlayerVault readVault(UUID playerUuid) throws SQLException {
+        List<Integer> corruptPages = new ArrayList<>();
+        PlayerVault vault = withReadConnection(connection -> {
+            int slotsPerVault;
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT slots_per_vault FROM vault_players WHERE player_uuid = ?")) {
+                statement.setString(1, playerUuid.toString());
+                try (ResultSet result = statement.executeQuery()) {
+                    if (!result.next()) {
+                        return null;
+                    }
+                    slotsPerVault = result.getInt(1);
+                }
+            }
+
+            PlayerVault loaded = new PlayerVault(playerUuid, slotsPerVault);
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT vault_number, data FROM vault_pages WHERE player_uuid = ?")) {
+                statement.setString(1, playerUuid.toString());
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        try {
+                            loaded.addVault(BinaryVaultCodec.decodePage(result.getBytes(2)));
+                        } catch (IOException | RuntimeException e) {
+                            LOGGER.log(Level.SEVERE, "Vault " + result.getInt(1) + " of " + playerUuid + " is corrupt", e);
+                            corruptPages.add(result.getInt(1));
+                        }
+                    }
+                }
+            }
+            loaded.markClean();
+            return loaded;
+        });
+        if (vault != null && !corruptPages.isEmpty()) {
+            quarantinePages(playerUuid, corruptPages);
+        }
+        return vault;
+    }
+
+    /**
+     * Move undecodable page rows aside so a later save never overwrites them.
+     */
+    private void quarantinePages(UUID playerUuid, List<Integer> vaultNumbers) throws SQLException {
+        synchronized (writeLock) {
+            requireOpen();
+            try (PreparedStatement quarantine = writeConnection.prepareStatement(QUARANTINE_PAGE);
+                 PreparedStatement delete = writeConnection.prepareStatement(DELETE_PAGE)) {
+                long now = System.currentTimeMillis();
+                for (int vaultNumber : vaultNumbers) {
+                    quarantine.setLong(1, now);
+                    quarantine.setString(2, playerUuid.toString());
+                    quarantine.setInt(3, vaultNumber);
+                    quarantine.executeUpdate();
+                    delete.setString(1, playerUuid.toString());
+                    delete.setInt(2, vaultNumber);
+                    delete.executeUpdate();
+                }
+                writeConnection.commit();
+            } catch (SQLException e) {
+                rollbackQuietly();
+                throw e;
+            }
+        }
+        LOGGER.severe("Moved " + vaultNumbers.size() + " corrupt vault pages of " + playerUuid
+                + " to vault_quarantine; starting them from the slot journal");
+    }
+
+    private void writeVault(VaultSnapshot vault) throws SQLException, IOException {
+        String uuid = vault.getPlayerUuid().toString();
+
+        // Encode outside the lock; only pages changed since the last save are sent
+        List<PageSnapshot> changedPages = new ArrayList<>();
+        List<byte[]> changedData = new ArrayList<>();
+        List<Integer> emptiedPages = new ArrayList<>();
+        for (PageSnapshot page : vault.getDirtyPages()) {
+            if (page.isEmpty()) {
+                emptiedPages.add(page.getVaultNumber());
+            } else {
+                changedPages.add(page);
+                changedData.add(BinaryVaultCodec.encodePage(page));
+            }
+        }
+
+        synchronized (writeLock) {
+            requireOpen();
+            try (PreparedStatement player = writeConnection.prepareStatement(UPSERT_PLAYER);
+                 PreparedStatement upsert = writeConnection.prepareStatement(UPSERT_PAGE);
+                 PreparedStatement delete = writeConnection.prepareStatement(DELETE_PAGE)) {
+                player.setString(1, uuid);
+                player.setInt(2, vault.getSlotsPerVault());
+                player.setInt(3, vault.getTotalItemCount());
+                player.setLong(4, System.currentTimeMillis());
+                player.executeUpdate();
+
+                for (int i = 0; i < changedPages.size(); i++) {
+                    PageSnapshot page = changedPages.get(i);
+                    upsert.setString(1, uuid);
+                    upsert.setInt(2, page.getVaultNumber());
+                    upsert.setInt(3, page.getSlots());
+                    upsert.setInt(4, page.getItemCount());
+                    upsert.setBytes(5, changedData.get(i));
+                    upsert.addBatch();
+                }
+                if (!changedPages.isEmpty()) {
+                    upsert.executeBatch();
+                }
+
+                for (Integer vaultNumber : emptiedPages) {
+                    delete.setString(1, uuid);
+                    delete.setInt(2, vaultNumber);
+                    delete.addBatch();
+                }
+                if (!emptiedPages.isEmpty()) {
+                    delete.executeBatch();
+                }
+
+                writeConnection.commit();
+            } catch (SQLException e) {
+                rollbackQuietly();
+                throw e;
+            }
+        }
+    }
+
+    private PlayerVault readLegacyVault(UUID playerUuid, int slotsPerVault) throws IOException {
+        Path jsonFile = FileStorage.locateFile(dataDirectory, playerUuid, JsonStorage.FILE_EXTENSION);
+        if (jsonFile == null) {
+            return null;
+        }
+        PlayerVault vault = JsonStorage.readJsonFile(jsonFile, slotsPerVault);
+        // Written to the database on the next save; the JSON file is kept as a fallback copy
+        vault.markDirty();
+        LOGGER.info("Migrating vault for " + playerUuid + " from JSON to SQLite");
+        return vault;
+    }
+
+    private String synchronousMode() {
+        return switch (fsyncPolicy) {
+            case ALWAYS, GROUP -> "FULL";
+            case BATCHED -> "NORMAL";
+            case NEVER -> "OFF";
+        };
+    }
+
+    /**
+     * Fail fast if the database is not open (initialize failed, or shut down).
+     * Callers that write hold {@link #writeLock}.
+     */
+    private void requireOpen() throws SQLException {
+        if (!open) {
+            throw new SQLException("SQLite storage is not open; see the startup log for the cause");
+        }
+    }
+
+    /**
+     * Run a query on a pooled read connection, waiting for one to be free.
+     */
+    private <T> T withReadConnection(SqlFunction<T> query) throws SQLException {
+        requireOpen();
+        Connection connection;
+        try {
+            while ((connection = readConnections.poll(100, TimeUnit.MILLISECONDS)) == null) {
+                requireOpen();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a SQLite read connection", e);
+        }
+        try {
+            return query.apply(connection);
+        } finally {
+            if (open) {
+                readConnections.add(connection);
+            } else {
+                closeQuietly(connection);
+            }
+        }
+    }
+
+    private void rollbackQuietly() {
+        try {
+            writeConnection.rollback();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to roll back SQLite transaction", e);
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to close SQLite connection", e);
+        }
+    }
+
+    /**
+     * A query run against a borrowed connection.
+     */
+    @FunctionalInterface
+    private interface SqlFunction<T> {
+        T apply(Connection connection) throws SQLException;
+    }
+}
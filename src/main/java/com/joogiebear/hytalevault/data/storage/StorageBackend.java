@@ -8,6 +8,8 @@ import java.util.concurrent.CompletableFuture;
 /**
  * Interface for vault data storage backends.
  * Implementations handle persistence of player vault data.
+ * Blocking I/O should run on the {@link StorageExecutor} passed to the
+ * implementation's constructor, never on the common ForkJoinPool.
  */
 public interface StorageBackend {
 
@@ -44,6 +46,13 @@ public interface StorageBackend {
      */
     CompletableFuture<Boolean> vaultExists(UUID playerUuid);
 
+    /**
+     * Summarize what this backend stores, for admin stats.
+     *
+     * @return A future containing the stats
+     */
+    CompletableFuture<StorageStats> getStats();
+
     /**
      * Initialize the storage backend.
      * Called when the plugin enables.
@@ -0,0 +1,363 @@
+package com.joogiebear.hytalevault.data.storage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Dedicated executor for blocking storage I/O.
+ * Keeps file and database work off ForkJoinPool.commonPool(), which is shared
+ * with the server and other plugins.
+ *
+ * A fixed number of workers drain a bounded queue. Workers are virtual threads
+ * or daemon platform threads depending on the mode. When the queue is full the
+ * submitting thread runs the task itself, which throttles producers instead of
+ * dropping saves.
+ *
+ * Tasks are queued in {@link Priority} lanes and workers always take from the
+ * most urgent non-empty lane, so loads for joining players overtake autosaves
+ * and admin work. Callers pick a lane with {@link #submitting(Priority)}; the
+ * returned {@link Submission} can later {@link Submission#promote promote} its
+ * tasks if they are still queued. Tasks submitted from a running storage task
+ * (e.g. future callbacks) inherit its lane.
+ */
+public class StorageExecutor implements Executor {
+
+    private static final Logger LOGGER = Logger.getLogger("HytaleVault");
+
+    /**
+     * Worker thread flavour.
+     */
+    public enum Mode {
+        VIRTUAL,
+        PLATFORM;
+
+        /**
+         * Parse a mode from config, defaulting to virtual threads.
+         */
+        public static Mode fromString(String value) {
+            if (value != null && value.equalsIgnoreCase("platform")) {
+                return PLATFORM;
+            }
+            return VIRTUAL;
+        }
+    }
+
+    /**
+     * Queue lanes, most urgent first.
+     */
+    public enum Priority {
+        /** Loads for players who are joining right now. */
+        LOGIN,
+        /** Work a player is waiting on (commands, disconnect saves). The default. */
+        INTERACTIVE,
+        /** Autosaves, journal compaction, admin and API access to offline players. */
+        BACKGROUND
+    }
+
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final Mode mode;
+    private final int queueCapacity;
+    private final ArrayDeque<Task>[] lanes; // guarded by lock
+    private int queued; // guarded by lock
+    private final ReentrantLock lock;
+    private final Condition notEmpty;
+    private final ThreadLocal<Submission> currentSubmission;
+    private final Submission[] inherited;
+    private final Thread[] workers;
+    private final AtomicInteger activeCount;
+    private volatile boolean running;
+
+    /**
+     * Create a new storage executor.
+     *
+     * @param mode          Virtual or platform worker threads
+     * @param threads       Number of workers (maximum concurrent I/O operations)
+     * @param queueCapacity Maximum number of queued tasks before callers run tasks themselves
+     */
+    public StorageExecutor(Mode mode, int threads, int queueCapacity) {
+        this.mode = mode;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        @SuppressWarnings("unchecked")
+        ArrayDeque<Task>[] lanes = new ArrayDeque[PRIORITIES.length];
+        this.inherited = new Submission[PRIORITIES.length];
+        for (Priority priority : PRIORITIES) {
+            lanes[priority.ordinal()] = new ArrayDeque<>();
+            inherited[priority.ordinal()] = new Submission(priority, null);
+        }
+        this.lanes = lanes;
+        this.lock = new ReentrantLock();
+        this.notEmpty = lock.newCondition();
+        this.currentSubmission = new ThreadLocal<>();
+        this.workers = new Thread[Math.max(1, threads)];
+        this.activeCount = new AtomicInteger();
+    }
+
+    /**
+     * Start the worker threads.
+     */
+    public void start() {
+        running = true;
+        Thread.Builder builder = mode == Mode.VIRTUAL
+                ? Thread.ofVirtual().name("HytaleVault-IO-", 0)
+                : Thread.ofPlatform().daemon(true).name("HytaleVault-IO-", 0);
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = builder.start(this::workerLoop);
+        }
+    }
+
+    /**
+     * Stop accepting queued work, drain what is already queued, and wait for the workers.
+     * Work submitted after this call runs on the submitting thread. Tasks still
+     * queued at the deadline are dropped and logged; their futures never complete,
+     * so callers must not depend on them after shutdown.
+     *
+     * @param timeout How long to wait for the queue to drain
+     * @param unit    Unit of the timeout
+     * @return The number of tasks dropped
+     */
+    public int shutdown(long timeout, TimeUnit unit) {
+        running = false;
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Thread worker : workers) {
+            if (worker == null) {
+                continue;
+            }
+            try {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining > 0) {
+                    worker.join(remaining);
+                }
+                if (worker.isAlive()) {
+                    worker.interrupt();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        int dropped;
+        StringBuilder lanesSummary = new StringBuilder();
+        lock.lock();
+        try {
+            dropped = queued;
+            for (Priority priority : PRIORITIES) {
+                ArrayDeque<Task> lane = lanes[priority.ordinal()];
+                if (!lane.isEmpty()) {
+                    lanesSummary.append(' ').append(priority.name().toLowerCase()).append('=').append(lane.size());
+                    lane.clear();
+                }
+            }
+            queued = 0;
+        } finally {
+            lock.unlock();
+        }
+        if (dropped > 0) {
+            LOGGER.severe("Storage executor did not drain in time; dropped " + dropped + " queued tasks (" + lanesSummary.toString().trim() + ")");
+        }
+        return dropped;
+    }
+
+    @Override
+    public void execute(Runnable runnable) {
+        Submission submission = currentSubmission.get();
+        Task task = new Task(runnable, submission != null ? submission.priority : Priority.INTERACTIVE);
+        lock.lock();
+        try {
+            if (running && queued < queueCapacity) {
+                lanes[task.priority.ordinal()].addLast(task);
+                queued++;
+                if (submission != null && submission.tasks != null) {
+                    submission.tasks.add(task);
+                }
+                notEmpty.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        // Stopped or saturated: run on the caller for backpressure
+        runTask(task);
+    }
+
+    /**
+     * Route tasks submitted by the current thread to a lane until the returned
+     * submission is closed. Use with try-with-resources around the storage call.
+     *
+     * @param priority The lane to queue in
+     * @return The submission, which remembers its tasks so they can be promoted
+     */
+    public Submission submitting(Priority priority) {
+        Submission submission = new Submission(priority, new ArrayList<>(2));
+        submission.previous = currentSubmission.get();
+        currentSubmission.set(submission);
+        return submission;
+    }
+
+    /**
+     * Get the number of tasks waiting for a worker.
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of tasks waiting in one lane.
+     */
+    public int getQueueDepth(Priority priority) {
+        lock.lock();
+        try {
+            return lanes[priority.ordinal()].size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of tasks currently running on workers.
+     */
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    private void workerLoop() {
+        while (true) {
+            Task task;
+            lock.lock();
+            try {
+                if (queued == 0) {
+                    if (!running) {
+                        return;
+                    }
+                    notEmpty.await(100, TimeUnit.MILLISECONDS);
+                }
+                task = poll();
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            if (task != null) {
+                activeCount.incrementAndGet();
+                try {
+                    runTask(task);
+                } finally {
+                    activeCount.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    // Caller holds lock
+    private Task poll() {
+        for (ArrayDeque<Task> lane : lanes) {
+            Task task = lane.pollFirst();
+            if (task != null) {
+                queued--;
+                task.started = true;
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private void promote(List<Task> tasks, Priority priority) {
+        lock.lock();
+        try {
+            for (Task task : tasks) {
+                if (!task.started && task.priority.compareTo(priority) > 0
+                        && lanes[task.priority.ordinal()].remove(task)) {
+                    task.priority = priority;
+                    lanes[priority.ordinal()].addLast(task);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void runTask(Task task) {
+        // Follow-on work submitted by this task (e.g. future callbacks) stays in its lane
+        Submission previous = currentSubmission.get();
+        currentSubmission.set(inherited[task.priority.ordinal()]);
+        try {
+            task.runnable.run();
+        } catch (Throwable t) {
+            LOGGER.log(Level.SEVERE, "Uncaught exception in storage task", t);
+        } finally {
+            currentSubmission.set(previous);
+        }
+    }
+
+    /**
+     * A queued task and the lane it is in.
+     */
+    private static final class Task {
+        private final Runnable runnable;
+        private Priority priority; // guarded by lock
+        private boolean started; // guarded by lock
+
+        private Task(Runnable runnable, Priority priority) {
+            this.runnable = runnable;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * Tasks submitted under one {@link #submitting(Priority)} scope.
+     */
+    public final class Submission implements AutoCloseable {
+        private final Priority priority;
+        private final List<Task> tasks; // guarded by lock; null for inherited scopes
+        private Submission previous;
+
+        private Submission(Priority priority, List<Task> tasks) {
+            this.priority = priority;
+            this.tasks = tasks;
+        }
+
+        public Priority getPriority() {
+            return priority;
+        }
+
+        /**
+         * Move this submission's still-queued tasks to a more urgent lane.
+         * Tasks already running, or already in that lane or a better one, are left alone.
+         *
+         * @param priority The lane to move to
+         */
+        public void promote(Priority priority) {
+            if (tasks != null) {
+                StorageExecutor.this.promote(tasks, priority);
+            }
+        }
+
+        /**
+         * Stop routing the current thread's submissions through this scope.
+         */
+        @Override
+        public void close() {
+            if (currentSubmission.get() == this) {
+                currentSubmission.set(previous);
+            }
+        }
+    }
+}
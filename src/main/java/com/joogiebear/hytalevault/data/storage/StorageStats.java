@@ -0,0 +1,13 @@
+package com.joogiebear.hytalevault.data.storage;
+
+/**
+ * Summary of what a storage backend holds, for admin stats.
+ *
+ * @param players      Number of players with stored vaults
+ * @param totalItems   Number of stored item stacks across all players
+ * @param totalBytes   Approximate size on disk in bytes
+ * @param lastModified Most recent save time (epoch millis), or 0 if unknown
+ * @param complete     False while the backend is still building its index
+ */
+public record StorageStats(long players, long totalItems, long totalBytes, long lastModified, boolean complete) {
+}
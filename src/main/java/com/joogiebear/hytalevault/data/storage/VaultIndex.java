@@ -0,0 +1,155 @@
+package com.joogiebear.hytalevault.data.storage;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact index of stored vault files: UUID to size, last-modified time and
+ * item count. Kept in memory and written to disk on clean shutdown, so admin
+ * stats never have to open every player file.
+ *
+ * <pre>
+ * file   := magic "HVIX" | u8 version | u32 count | entry*
+ * entry  := u64 uuidMsb | u64 uuidLsb | u64 size | u64 lastModified | u32 itemCount
+ * </pre>
+ *
+ * The file is deleted once loaded. If the server does not shut down cleanly
+ * there is no index on the next start, and the caller rebuilds it.
+ */
+class VaultIndex {
+
+    private static final byte[] MAGIC = {'H', 'V', 'I', 'X'};
+    private static final int VERSION = 1;
+
+    /**
+     * One indexed vault file.
+     *
+     * @param size         File size in bytes
+     * @param lastModified Last write time (epoch millis)
+     * @param itemCount    Item stacks stored in the file
+     */
+    record Entry(long size, long lastModified, int itemCount) {
+    }
+
+    private final Path file;
+    private final Map<UUID, Entry> entries;
+
+    /**
+     * Create a new index.
+     *
+     * @param file Where the index is stored between runs
+     */
+    VaultIndex(Path file) {
+        this.file = file;
+        this.entries = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Load the index left by the last clean shutdown, then remove it from disk.
+     *
+     * @return true if a complete index was loaded, false if it must be rebuilt
+     */
+    boolean load() {
+        if (!Files.exists(file)) {
+            return false;
+        }
+        try (InputStream raw = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(raw))) {
+            byte[] magic = in.readNBytes(MAGIC.length);
+            if (magic.length != MAGIC.length || magic[0] != MAGIC[0] || magic[1] != MAGIC[1]
+                    || magic[2] != MAGIC[2] || magic[3] != MAGIC[3] || in.readUnsignedByte() != VERSION) {
+                return false;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                UUID uuid = new UUID(in.readLong(), in.readLong());
+                entries.put(uuid, new Entry(in.readLong(), in.readLong(), in.readInt()));
+            }
+        } catch (IOException e) {
+            // Truncated or unreadable; rebuild
+            entries.clear();
+            return false;
+        } finally {
+            try {
+                // Only a clean shutdown writes it back; a crash means a rebuild
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                // Overwritten on the next clean shutdown
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write the index.
+     *
+     * @param out The destination (not closed)
+     */
+    void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.write(MAGIC);
+        data.writeByte(VERSION);
+        // Snapshot first so the count matches the entries written
+        Map<UUID, Entry> copy = Map.copyOf(entries);
+        data.writeInt(copy.size());
+        for (Map.Entry<UUID, Entry> entry : copy.entrySet()) {
+            data.writeLong(entry.getKey().getMostSignificantBits());
+            data.writeLong(entry.getKey().getLeastSignificantBits());
+            data.writeLong(entry.getValue().size());
+            data.writeLong(entry.getValue().lastModified());
+            data.writeInt(entry.getValue().itemCount());
+        }
+        data.flush();
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    void put(UUID playerUuid, Entry entry) {
+        entries.put(playerUuid, entry);
+    }
+
+    /**
+     * Add an entry found while rebuilding, unless a live save already recorded a newer one.
+     */
+    void putIfAbsent(UUID playerUuid, Entry entry) {
+        entries.putIfAbsent(playerUuid, entry);
+    }
+
+    void remove(UUID playerUuid) {
+        entries.remove(playerUuid);
+    }
+
+    Entry get(UUID playerUuid) {
+        return entries.get(playerUuid);
+    }
+
+    /**
+     * Summarize the index.
+     *
+     * @param complete Whether every stored file has been indexed
+     */
+    StorageStats getStats(boolean complete) {
+        long items = 0;
+        long bytes = 0;
+        long lastModified = 0;
+        int players = 0;
+        for (Entry entry : entries.values()) {
+            players++;
+            items += entry.itemCount();
+            bytes += entry.size();
+            lastModified = Math.max(lastModified, entry.lastModified());
+        }
+        return new StorageStats(players, items, bytes, lastModified, complete);
+    }
+}
@@ -0,0 +1,83 @@
+package com.joogiebear.hytalevault.gui;
+
+import com.joogiebear.hytalevault.data.PlayerVault;
+import com.joogiebear.hytalevault.data.VaultPage;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-player pool of vault containers.
+ * Players flick between vaults constantly; instead of allocating a container
+ * and installing a new listener on every open, the container last used for
+ * that vault number is rebound to the (possibly reloaded) page and reused.
+ *
+ * A container is reused only if it still exposes the same number of slots;
+ * a permission tier change replaces it. Pools are released when the player
+ * disconnects. A player's pool is only touched from that player's world thread.
+ */
+public class ContainerPool {
+
+    private final Map<UUID, VaultContainer[]> pools;
+
+    public ContainerPool() {
+        this.pools = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Get a container for a vault page, reusing the pooled one if it fits.
+     *
+     * @param playerUuid The player opening the vault
+     * @param vault      The player's vault
+     * @param page       The page to view
+     * @param slots      The number of slots the player may use
+     * @param factory    Creates a new container for the page when none can be reused
+     * @return A container bound to the page
+     */
+    public VaultContainer acquire(UUID playerUuid, PlayerVault vault, VaultPage page, int slots,
+                                  Factory factory) {
+        int index = page.getVaultNumber() - 1;
+        int capacity = Math.min(slots, page.getSlots());
+        VaultContainer[] pool = pools.computeIfAbsent(playerUuid, uuid -> new VaultContainer[Math.max(1, index + 1)]);
+        if (index >= pool.length) {
+            pool = Arrays.copyOf(pool, index + 1);
+            pools.put(playerUuid, pool);
+        }
+
+        VaultContainer container = pool[index];
+        if (container == null || container.getCapacity() != capacity) {
+            container = factory.create(page, (short) capacity);
+            pool[index] = container;
+        }
+        container.bind(vault, page);
+        return container;
+    }
+
+    /**
+     * Drop a player's pooled containers (on disconnect).
+     */
+    public void release(UUID playerUuid) {
+        pools.remove(playerUuid);
+    }
+
+    public void clear() {
+        pools.clear();
+    }
+
+    /**
+     * Get the number of players with pooled containers.
+     */
+    public int size() {
+        return pools.size();
+    }
+
+    /**
+     * Creates a container when the pool has none to reuse.
+     */
+    @FunctionalInterface
+    public interface Factory {
+        VaultContainer create(VaultPage page, short capacity);
+    }
+}
@@ -0,0 +1,18 @@
+package com.joogiebear.hytalevault.gui;
+
+import java.util.BitSet;
+
+/**
+ * Receives the slots a {@link VaultContainer} operation changed.
+ * Called once per container write action (a move-all or sort touching many
+ * slots is one call), with slot indexes as bits so nothing is boxed.
+ */
+@FunctionalInterface
+public interface SlotChangeListener {
+
+    /**
+     * @param changedSlots The changed slot indexes. Owned by the container and
+     *                     reused for the next batch; copy it to keep it.
+     */
+    void onSlotsChanged(BitSet changedSlots);
+}
@@ -9,14 +9,17 @@ import com.hypixel.hytale.server.core.inventory.container.filter.FilterActionTyp
 import com.hypixel.hytale.server.core.inventory.container.filter.FilterType;
 import com.hypixel.hytale.server.core.inventory.container.filter.SlotFilter;
 import com.hypixel.hytale.server.core.inventory.transaction.ClearTransaction;
+import com.joogiebear.hytalevault.data.PlayerVault;
+import com.joogiebear.hytalevault.data.VaultPage;
 import org.checkerframework.checker.nullness.compatqual.NonNullDecl;
 
 import javax.annotation.Nonnull;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -24,6 +27,16 @@ import java.util.function.Supplier;
  * Custom ItemContainer for vault storage.
  * All slots are usable storage slots.
  * Supports a change listener for real-time syncing.
+ *
+ * A container opened on a {@link VaultPage} is a live view: reads and writes
+ * go straight to the page, so nothing is copied on open and the window can
+ * never drift from the stored vault. The capacity may be smaller than the
+ * page (slot tiers); slots past it are left untouched.
+ *
+ * Slot changes are collected in a bitset for the duration of a write action
+ * and delivered to the listener once when the outermost action finishes, so
+ * a multi-slot operation costs one callback. Changes made outside a write
+ * action are delivered immediately.
  */
 public class VaultContainer extends ItemContainer {
 
@@ -32,27 +45,104 @@ public class VaultContainer extends ItemContainer {
             BuilderCodec.builder(VaultContainer.class, () -> INSTANCE).build();
 
     private short _capacity;
-    private ItemStack[] _slots;
-    private BiConsumer<Short, ItemStack> changeListener;
+    private ItemStack[] _slots; // standalone storage; null for a page view
+    private VaultPage page;
+    private PlayerVault vault;
+    private SlotChangeListener changeListener;
     private Set<String> blacklist;
+    private BitSet pendingSlots;
+    private BitSet deliveringSlots;
+    private int writeDepth;
 
     public VaultContainer(short capacity) {
         this._capacity = capacity;
         this._slots = new ItemStack[capacity];
+        this.pendingSlots = new BitSet(capacity);
+        this.deliveringSlots = new BitSet(capacity);
+    }
+
+    /**
+     * Create a live view over a vault page.
+     *
+     * @param page     The page that holds the items
+     * @param capacity The number of slots exposed (clamped to the page size)
+     */
+    public VaultContainer(VaultPage page, short capacity) {
+        this._capacity = (short) Math.min(capacity, page.getSlots());
+        this.page = page;
+        this.pendingSlots = new BitSet(_capacity);
+        this.deliveringSlots = new BitSet(_capacity);
     }
 
     protected VaultContainer() {
         // For CODEC/singleton
+        this.pendingSlots = new BitSet();
+        this.deliveringSlots = new BitSet();
     }
 
     /**
-     * Set a listener that gets called whenever a slot changes.
-     * @param listener Called with (slotIndex, newItemStack) on every change
+     * Set a listener that gets called whenever slots change.
+     * @param listener Called with the changed slots once per write action;
+     *                 read the new contents with {@link #getSlotItem(int)}
      */
-    public void setChangeListener(BiConsumer<Short, ItemStack> listener) {
+    public void setChangeListener(SlotChangeListener listener) {
         this.changeListener = listener;
     }
 
+    /**
+     * Get the item in a slot without going through a read action.
+     * @param slot The slot index
+     * @return The item, or null if the slot is empty or out of range
+     */
+    public ItemStack getSlotItem(int slot) {
+        return slot >= 0 && slot < _capacity ? read(slot) : null;
+    }
+
+    /**
+     * Point a page view at a (possibly reloaded) page and reset its batch
+     * state, so a pooled container can be reused for a new window.
+     *
+     * @param vault The vault that owns the page
+     * @param page  The page to view; must have at least {@link #getCapacity()} slots
+     */
+    public void bind(PlayerVault vault, VaultPage page) {
+        this.vault = vault;
+        this.page = page;
+        this._slots = null;
+        this.writeDepth = 0;
+        pendingSlots.clear();
+        deliveringSlots.clear();
+    }
+
+    /**
+     * Get the vault this container was last bound to.
+     * @return The vault, or null if never bound
+     */
+    public PlayerVault getVault() {
+        return vault;
+    }
+
+    /**
+     * Get the page this container is a view of.
+     * @return The page, or null for a standalone container
+     */
+    public VaultPage getPage() {
+        return page;
+    }
+
+    private ItemStack read(int slot) {
+        return page != null ? page.getItem(slot) : _slots[slot];
+    }
+
+    private ItemStack write(int slot, ItemStack itemStack) {
+        if (page != null) {
+            return page.replaceItem(slot, itemStack);
+        }
+        ItemStack prev = _slots[slot];
+        _slots[slot] = itemStack;
+        return prev;
+    }
+
     /**
      * Set the item blacklist. Items with IDs in this set will be rejected.
      * @param blacklist Set of item IDs that cannot be placed in this container
@@ -75,7 +165,7 @@ public class VaultContainer extends ItemContainer {
     @Override
     public void forEach(@NonNullDecl ShortObjectConsumer<ItemStack> action) {
         for (short i = 0; i < _capacity; i++) {
-            action.accept(i, _slots[i]);
+            action.accept(i, read(i));
         }
     }
 
@@ -91,12 +181,56 @@ public class VaultContainer extends ItemContainer {
 
     @Override
     protected <V> V writeAction(@Nonnull Supplier<V> action) {
-        return action.get();
+        writeDepth++;
+        try {
+            return action.get();
+        } finally {
+            endWrite();
+        }
     }
 
     @Override
     protected <X, V> V writeAction(@Nonnull Function<X, V> action, X x) {
-        return action.apply(x);
+        writeDepth++;
+        try {
+            return action.apply(x);
+        } finally {
+            endWrite();
+        }
+    }
+
+    private void endWrite() {
+        if (--writeDepth == 0) {
+            flushChanges();
+        }
+    }
+
+    private void slotChanged(short slot) {
+        if (changeListener == null) {
+            return;
+        }
+        pendingSlots.set(slot);
+        if (writeDepth == 0) {
+            flushChanges();
+        }
+    }
+
+    /**
+     * Deliver the collected batch. The two bitsets are swapped so a listener
+     * that modifies the container starts a fresh batch instead of mutating this one.
+     */
+    private void flushChanges() {
+        if (changeListener == null || pendingSlots.isEmpty()) {
+            return;
+        }
+        BitSet batch = pendingSlots;
+        pendingSlots = deliveringSlots;
+        deliveringSlots = batch;
+        try {
+            changeListener.onSlotsChanged(batch);
+        } finally {
+            batch.clear();
+        }
     }
 
     @Nonnull
@@ -108,19 +242,16 @@ public class VaultContainer extends ItemContainer {
     @Override
     protected ItemStack internal_getSlot(short slot) {
         validateSlotIndex(slot, _capacity);
-        return _slots[slot];
+        return read(slot);
     }
 
     @Override
     protected ItemStack internal_setSlot(short slot, ItemStack itemStack) {
         validateSlotIndex(slot, _capacity);
-        ItemStack prev = _slots[slot];
-        _slots[slot] = itemStack;
+        ItemStack prev = write(slot, itemStack);
 
         // Notify listener of change for real-time sync
-        if (changeListener != null) {
-            changeListener.accept(slot, itemStack);
-        }
+        slotChanged(slot);
 
         return prev;
     }
@@ -128,13 +259,10 @@ public class VaultContainer extends ItemContainer {
     @Override
     protected ItemStack internal_removeSlot(short slot) {
         validateSlotIndex(slot, _capacity);
-        ItemStack prev = _slots[slot];
-        _slots[slot] = null;
+        ItemStack prev = write(slot, null);
 
         // Notify listener of removal
-        if (changeListener != null) {
-            changeListener.accept(slot, null);
-        }
+        slotChanged(slot);
 
         return prev;
     }
@@ -178,19 +306,19 @@ public class VaultContainer extends ItemContainer {
 
     @Nonnull
     public Map<Integer, ItemWithAllMetadata> toProtocolMap() {
-        var map = new java.util.HashMap<Integer, ItemWithAllMetadata>();
+        var map = new HashMap<Integer, ItemWithAllMetadata>();
 
         for (int i = 0; i < _capacity; i++) {
-            ItemStack s = _slots[i];
+            ItemStack s = read(i);
             if (s == null) continue;
 
             ItemWithAllMetadata p = new ItemWithAllMetadata();
             p.itemId = s.getItemId();
             p.quantity = s.getQuantity();
-            p.durability = 0;
-            p.maxDurability = 0;
+            p.durability = s.getDurability();
+            p.maxDurability = s.getMaxDurability();
             p.overrideDroppedItemAnimation = false;
-            p.metadata = null;
+            p.metadata = s.getMetadata() != null ? s.getMetadata().toJson() : null;
 
             map.put(i, p);
         }
@@ -203,8 +331,14 @@ public class VaultContainer extends ItemContainer {
         VaultContainer c = new VaultContainer();
         c._capacity = this._capacity;
 
+        // A clone is a detached copy, even of a page view
         if (this._slots != null) {
             c._slots = this._slots.clone();
+        } else if (this.page != null) {
+            c._slots = new ItemStack[_capacity];
+            for (int i = 0; i < _capacity; i++) {
+                c._slots[i] = read(i);
+            }
         }
 
         return c;
@@ -16,6 +16,7 @@ import com.hypixel.hytale.server.core.ui.builder.UIEventBuilder;
 import com.hypixel.hytale.server.core.universe.PlayerRef;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 import com.joogiebear.hytalevault.data.PlayerVault;
+import com.joogiebear.hytalevault.managers.EntitlementCache;
 import com.joogiebear.hytalevault.managers.VaultManager;
 import com.joogiebear.hytalevault.util.MessageUtil;
 
@@ -72,12 +73,15 @@ public class VaultSelectorPage extends InteractiveCustomUIPage<VaultSelectorPage
     ) {
         cmd.append("Pages/VaultSelector.ui");
 
+        // Resolved once for the whole page
+        EntitlementCache.Entitlements entitlements = vaultManager.getEntitlements(sourcePlayer);
+
         // Set button text and bind events for each vault slot
         for (int i = 1; i <= 9; i++) {
             String buttonId = "#Vault" + i;
 
             // Permission-only: if player has permission, vault is accessible
-            boolean hasPermission = vaultManager.hasVaultPermission(sourcePlayer, i);
+            boolean hasPermission = entitlements.canAccess(i);
 
             if (i <= maxVaults && hasPermission) {
                 cmd.set(buttonId + ".Text", "Vault " + i);
@@ -6,7 +6,6 @@ import com.hypixel.hytale.protocol.packets.interface_.Page;
 import com.hypixel.hytale.server.core.entity.entities.Player;
 import com.hypixel.hytale.server.core.entity.entities.player.pages.PageManager;
 import com.hypixel.hytale.server.core.entity.entities.player.windows.ContainerWindow;
-import com.hypixel.hytale.server.core.inventory.ItemStack;
 import com.hypixel.hytale.server.core.universe.PlayerRef;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 import com.joogiebear.hytalevault.HytaleVaultPlugin;
@@ -30,9 +29,13 @@ public class VaultUI {
     private static final Map<UUID, VaultSession> openSessions = new ConcurrentHashMap<>();
 
     private final HytaleVaultPlugin plugin;
+    private final ContainerPool containerPool;
+    private final ContainerPool.Factory containerFactory;
 
     public VaultUI(HytaleVaultPlugin plugin) {
         this.plugin = plugin;
+        this.containerPool = new ContainerPool();
+        this.containerFactory = this::createContainer;
     }
 
     public void openVault(Player player, Ref<EntityStore> ref, Store<EntityStore> store,
@@ -64,34 +67,11 @@ public class VaultUI {
             syncAndRemoveSession(playerRef.getUuid());
         }
 
-        // Create container with player's permitted slot count
-        VaultContainer container = new VaultContainer((short) slotsPerVault);
+        // Live view over the vault page, limited to the player's permitted slot count;
+        // reused from the player's pool when they reopen this vault
+        VaultContainer container = containerPool.acquire(playerRef.getUuid(), vault, vaultData, slotsPerVault, containerFactory);
         container.setBlacklist(config.getBlacklistedItems());
 
-        // Load items from vault into container (only within permitted slot range)
-        Map<Integer, ItemStack> items = vaultData.getItems();
-        for (Map.Entry<Integer, ItemStack> entry : items.entrySet()) {
-            int slot = entry.getKey();
-            ItemStack item = entry.getValue();
-            if (slot >= 0 && slot < slotsPerVault && item != null && !item.isEmpty()) {
-                container.internal_setSlot((short) slot, item);
-            }
-        }
-
-        // Set up real-time sync listener AFTER loading initial items
-        // Saves immediately to disk on every change to prevent data loss
-        container.setChangeListener((slot, item) -> {
-            // Sync this slot change directly to vault data
-            if (item == null || item.isEmpty()) {
-                vaultData.clearSlot(slot);
-            } else {
-                vaultData.setItem(slot, item);
-            }
-            vault.markDirty();
-            // Save to disk immediately (async)
-            plugin.getVaultManager().saveVault(vault);
-        });
-
         // Wrap in ContainerWindow and open via PageManager
         ContainerWindow containerWindow = new ContainerWindow(container);
 
@@ -106,6 +86,19 @@ public class VaultUI {
         LOGGER.info("Opened vault #" + vaultNumber + " for " + player.getDisplayName());
     }
 
+    /**
+     * Create a pooled container for a page. Its listener is installed once and
+     * reads the vault and page the container is currently bound to.
+     */
+    private VaultContainer createContainer(VaultPage page, short capacity) {
+        VaultContainer container = new VaultContainer(page, capacity);
+        // Edits already landed in the page; journal each user action (one batch) to
+        // prevent data loss. The compactor folds the journal into the vault file
+        container.setChangeListener(changedSlots -> plugin.getVaultManager().recordSlotChanges(
+                container.getVault(), container.getPage().getVaultNumber(), changedSlots, container::getSlotItem));
+        return container;
+    }
+
     public void closeVault(Player player) {
         Ref<EntityStore> ref = player.getReference();
         Store<EntityStore> store = ref.getStore();
@@ -114,9 +107,10 @@ public class VaultUI {
         if (playerRef != null) {
             VaultSession session = openSessions.remove(playerRef.getUuid());
             if (session != null) {
-                // Real-time sync already happened, just save to disk
-                plugin.getVaultManager().saveVault(session.vault).join();
-                LOGGER.info("Saved vault for " + playerRef.getUuid());
+                // Real-time sync already happened and changes are journaled;
+                // queue a coalesced save instead of blocking the world thread
+                plugin.getVaultManager().saveVault(session.vault);
+                LOGGER.fine("Queued save of vault for " + playerRef.getUuid());
             }
         }
     }
@@ -127,8 +121,8 @@ public class VaultUI {
     private void syncAndRemoveSession(UUID playerUuid) {
         VaultSession session = openSessions.remove(playerUuid);
         if (session != null) {
-            // Real-time sync already happened, just save to disk
-            plugin.getVaultManager().saveVault(session.vault).join();
+            // Real-time sync already happened and changes are journaled, just queue a save
+            plugin.getVaultManager().saveVault(session.vault);
         }
     }
 
@@ -139,6 +133,13 @@ public class VaultUI {
         syncAndRemoveSession(playerUuid);
     }
 
+    /**
+     * Release a disconnecting player's pooled containers.
+     */
+    public void releasePlayer(UUID playerUuid) {
+        containerPool.release(playerUuid);
+    }
+
     public boolean isVaultOpen(UUID playerUuid) {
         return openSessions.containsKey(playerUuid);
     }
@@ -150,9 +151,10 @@ public class VaultUI {
     public void closeAll() {
         // Save all open vaults before clearing
         for (VaultSession session : openSessions.values()) {
-            plugin.getVaultManager().saveVault(session.vault).join();
+            plugin.getVaultManager().saveVaultNow(session.vault).join();
         }
         openSessions.clear();
+        containerPool.clear();
     }
 
     public static class VaultSession {
@@ -39,11 +39,12 @@ public class PlayerListener {
     /**
      * Handle player ready event.
      * Called when a player has finished loading and is ready for gameplay.
+     * Prefetches the vault in the login lane so the first /vault finds it loaded.
      */
     private void onPlayerReady(PlayerReadyEvent event) {
         Player player = event.getPlayer();
 
-        plugin.getVaultManager().getVault(player)
+        plugin.getVaultManager().prefetch(player)
                 .thenAccept(vault -> {
                     LOGGER.fine("Loaded vault for " + player.getLegacyDisplayName());
                 })
@@ -63,8 +64,11 @@ public class PlayerListener {
 
         // Close vault window if open (syncs container to vault data)
         VaultUI vaultUI = plugin.getVaultUI();
-        if (vaultUI != null && vaultUI.isVaultOpen(playerRef.getUuid())) {
-            vaultUI.closeVaultByUuid(playerRef.getUuid());
+        if (vaultUI != null) {
+            if (vaultUI.isVaultOpen(playerRef.getUuid())) {
+                vaultUI.closeVaultByUuid(playerRef.getUuid());
+            }
+            vaultUI.releasePlayer(playerRef.getUuid());
         }
 
         plugin.getVaultManager().unloadVault(playerRef.getUuid())
@@ -29,11 +29,26 @@ public class ConfigManager {
     // Cached config values
     private int maxVaults;
     private int slotsPerVault;
+    private int permissionCacheSeconds;
     private Set<String> blacklistedItems;
     private Map<String, Integer> slotTiers;
     private String storageType;
     private String storageDirectory;
     private int saveIntervalSeconds;
+    private int journalCompactSeconds;
+    private int saveDebounceMillis;
+    private String executorMode;
+    private int executorThreads;
+    private int executorQueueCapacity;
+    private int saveAllParallelism;
+    private int shutdownDeadlineSeconds;
+    private int offlineCacheSize;
+    private int offlineCacheMaxMegabytes;
+    private String fsyncPolicy;
+    private int fsyncIntervalMillis;
+    private int groupCommitWindowMillis;
+    private int segmentSizeMegabytes;
+    private int segmentCompactIntervalSeconds;
 
     // Messages (raw strings)
     private String messagePrefix;
@@ -86,13 +101,28 @@ public class ConfigManager {
                   "vault": {
                     "maxVaults": 9,
                     "slotsPerVault": 54,
+                    "permissionCacheSeconds": 30,
                     "blacklist": [],
                     "slotTiers": {}
                   },
                   "storage": {
                     "type": "json",
                     "directory": "playerdata",
-                    "saveIntervalSeconds": 300
+                    "saveIntervalSeconds": 300,
+                    "journalCompactSeconds": 5,
+                    "saveDebounceMillis": 250,
+                    "executorMode": "virtual",
+                    "executorThreads": 4,
+                    "executorQueueCapacity": 4096,
+                    "saveAllParallelism": 8,
+                    "shutdownDeadlineSeconds": 20,
+                    "offlineCacheSize": 500,
+                    "offlineCacheMaxMegabytes": 64,
+                    "fsyncPolicy": "batched",
+                    "fsyncIntervalMillis": 1000,
+                    "groupCommitWindowMillis": 5,
+                    "segmentSizeMegabytes": 64,
+                    "segmentCompactIntervalSeconds": 300
                   },
                   "messages": {
                     "prefix": "[HytaleVault] ",
@@ -117,6 +147,7 @@ public class ConfigManager {
         if (vault != null) {
             maxVaults = getInt(vault, "maxVaults", getInt(vault, "maxPages", 9));
             slotsPerVault = getInt(vault, "slotsPerVault", getInt(vault, "slotsPerPage", 54));
+            permissionCacheSeconds = getInt(vault, "permissionCacheSeconds", 30);
 
             // Parse blacklist
             blacklistedItems = new HashSet<>();
@@ -138,6 +169,7 @@ public class ConfigManager {
         } else {
             maxVaults = 9;
             slotsPerVault = 54;
+            permissionCacheSeconds = 30;
             blacklistedItems = new HashSet<>();
             slotTiers = new LinkedHashMap<>();
         }
@@ -147,10 +179,38 @@ public class ConfigManager {
             storageType = getString(storage, "type", "json");
             storageDirectory = getString(storage, "directory", "playerdata");
             saveIntervalSeconds = getInt(storage, "saveIntervalSeconds", 300);
+            journalCompactSeconds = getInt(storage, "journalCompactSeconds", 5);
+            saveDebounceMillis = getInt(storage, "saveDebounceMillis", 250);
+            executorMode = getString(storage, "executorMode", "virtual");
+            executorThreads = getInt(storage, "executorThreads", 4);
+            executorQueueCapacity = getInt(storage, "executorQueueCapacity", 4096);
+            saveAllParallelism = getInt(storage, "saveAllParallelism", 8);
+            shutdownDeadlineSeconds = getInt(storage, "shutdownDeadlineSeconds", 20);
+            offlineCacheSize = getInt(storage, "offlineCacheSize", 500);
+            offlineCacheMaxMegabytes = getInt(storage, "offlineCacheMaxMegabytes", 64);
+            fsyncPolicy = getString(storage, "fsyncPolicy", "batched");
+            fsyncIntervalMillis = getInt(storage, "fsyncIntervalMillis", 1000);
+            groupCommitWindowMillis = getInt(storage, "groupCommitWindowMillis", 5);
+            segmentSizeMegabytes = getInt(storage, "segmentSizeMegabytes", 64);
+            segmentCompactIntervalSeconds = getInt(storage, "segmentCompactIntervalSeconds", 300);
         } else {
             storageType = "json";
             storageDirectory = "playerdata";
             saveIntervalSeconds = 300;
+            journalCompactSeconds = 5;
+            saveDebounceMillis = 250;
+            executorMode = "virtual";
+            executorThreads = 4;
+            executorQueueCapacity = 4096;
+            saveAllParallelism = 8;
+            shutdownDeadlineSeconds = 20;
+            offlineCacheSize = 500;
+            offlineCacheMaxMegabytes = 64;
+            fsyncPolicy = "batched";
+            fsyncIntervalMillis = 1000;
+            groupCommitWindowMillis = 5;
+            segmentSizeMegabytes = 64;
+            segmentCompactIntervalSeconds = 300;
         }
 
         JsonObject messages = config.getAsJsonObject("messages");
@@ -171,11 +231,26 @@ public class ConfigManager {
     private void loadDefaults() {
         maxVaults = 9;
         slotsPerVault = 54;
+        permissionCacheSeconds = 30;
         blacklistedItems = new HashSet<>();
         slotTiers = new LinkedHashMap<>();
         storageType = "json";
         storageDirectory = "playerdata";
         saveIntervalSeconds = 300;
+        journalCompactSeconds = 5;
+        saveDebounceMillis = 250;
+        executorMode = "virtual";
+        executorThreads = 4;
+        executorQueueCapacity = 4096;
+        saveAllParallelism = 8;
+        shutdownDeadlineSeconds = 20;
+        offlineCacheSize = 500;
+        offlineCacheMaxMegabytes = 64;
+        fsyncPolicy = "batched";
+        fsyncIntervalMillis = 1000;
+        groupCommitWindowMillis = 5;
+        segmentSizeMegabytes = 64;
+        segmentCompactIntervalSeconds = 300;
         loadDefaultMessages();
     }
 
@@ -201,12 +276,27 @@ public class ConfigManager {
     // Getters for config values
     public int getMaxVaults() { return maxVaults; }
     public int getSlotsPerVault() { return slotsPerVault; }
+    public int getPermissionCacheSeconds() { return permissionCacheSeconds; }
     public Set<String> getBlacklistedItems() { return Collections.unmodifiableSet(blacklistedItems); }
     public boolean isBlacklisted(String itemId) { return blacklistedItems.contains(itemId); }
     public Map<String, Integer> getSlotTiers() { return Collections.unmodifiableMap(slotTiers); }
     public String getStorageType() { return storageType; }
     public String getStorageDirectory() { return storageDirectory; }
     public int getSaveIntervalSeconds() { return saveIntervalSeconds; }
+    public int getJournalCompactSeconds() { return journalCompactSeconds; }
+    public int getSaveDebounceMillis() { return saveDebounceMillis; }
+    public String getExecutorMode() { return executorMode; }
+    public int getExecutorThreads() { return executorThreads; }
+    public int getExecutorQueueCapacity() { return executorQueueCapacity; }
+    public int getSaveAllParallelism() { return saveAllParallelism; }
+    public int getShutdownDeadlineSeconds() { return shutdownDeadlineSeconds; }
+    public int getOfflineCacheSize() { return offlineCacheSize; }
+    public int getOfflineCacheMaxMegabytes() { return offlineCacheMaxMegabytes; }
+    public String getFsyncPolicy() { return fsyncPolicy; }
+    public int getFsyncIntervalMillis() { return fsyncIntervalMillis; }
+    public int getGroupCommitWindowMillis() { return groupCommitWindowMillis; }
+    public int getSegmentSizeMegabytes() { return segmentSizeMegabytes; }
+    public int getSegmentCompactIntervalSeconds() { return segmentCompactIntervalSeconds; }
 
     // Raw message getters (without prefix, for use with MessageUtil)
     public String getMessageNoPermissionRaw() { return messageNoPermission; }
@@ -0,0 +1,146 @@
+package com.joogiebear.hytalevault.managers;
+
+import com.hypixel.hytale.server.core.entity.entities.Player;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches what each player's permissions entitle them to: the highest vault
+ * they can open and their slot count. Resolving that means one permission
+ * check per vault number and slot tier, so it is done once per player and
+ * reused by the selector page, commands and the API.
+ *
+ * Entries expire after {@code vault.permissionCacheSeconds} so permission
+ * changes are picked up without any hook; permission plugins can call
+ * {@link #invalidate(UUID)} for an immediate refresh. Permission node strings
+ * are built once per config load.
+ */
+public class EntitlementCache {
+
+    private static final String VAULT_NODE_PREFIX = "hytalevault.vault.";
+    private static final String WILDCARD_NODE = VAULT_NODE_PREFIX + "*";
+
+    private final ConfigManager config;
+    private final Map<UUID, Entitlements> entries;
+    private volatile Nodes nodes;
+
+    public EntitlementCache(ConfigManager config) {
+        this.config = config;
+        this.entries = new ConcurrentHashMap<>();
+        this.nodes = buildNodes();
+    }
+
+    /**
+     * Get a player's entitlements, resolving them if not cached or expired.
+     */
+    public Entitlements get(Player player) {
+        UUID playerUuid = player.getUuid();
+        Entitlements entitlements = entries.get(playerUuid);
+        long now = System.nanoTime();
+        if (entitlements == null || now - entitlements.expiresAt > 0) {
+            entitlements = resolve(player, now);
+            entries.put(playerUuid, entitlements);
+        }
+        return entitlements;
+    }
+
+    /**
+     * Drop a player's cached entitlements (permission change, disconnect).
+     */
+    public void invalidate(UUID playerUuid) {
+        entries.remove(playerUuid);
+    }
+
+    /**
+     * Drop every cached entry and rebuild the permission nodes.
+     * Called after the config is reloaded (maxVaults or slot tiers may have changed).
+     */
+    public void invalidateAll() {
+        nodes = buildNodes();
+        entries.clear();
+    }
+
+    private Entitlements resolve(Player player, long now) {
+        Nodes current = nodes;
+        long expiresAt = now + TimeUnit.SECONDS.toNanos(Math.max(0, config.getPermissionCacheSeconds()));
+
+        // Vault 1 is accessible by default
+        boolean firstVault = player.hasPermission(current.vaultNodes[1], true);
+        boolean wildcard = player.hasPermission(WILDCARD_NODE);
+        int maxVault = 1;
+        if (wildcard) {
+            maxVault = current.maxVaults;
+        } else {
+            // Tiered permissions: vault.5 grants access to vaults 1-5
+            for (int i = current.maxVaults; i >= 2; i--) {
+                if (player.hasPermission(current.vaultNodes[i])) {
+                    maxVault = i;
+                    break;
+                }
+            }
+        }
+
+        int slots = current.defaultSlots;
+        if (current.tierNodes.length > 0) {
+            int maxSlots = 0;
+            for (int i = 0; i < current.tierNodes.length; i++) {
+                if (current.tierSlots[i] > maxSlots && player.hasPermission(current.tierNodes[i])) {
+                    maxSlots = current.tierSlots[i];
+                }
+            }
+            if (maxSlots > 0) {
+                slots = maxSlots;
+            }
+        }
+        return new Entitlements(wildcard, firstVault, maxVault, slots, expiresAt);
+    }
+
+    private Nodes buildNodes() {
+        int maxVaults = Math.max(1, config.getMaxVaults());
+        String[] vaultNodes = new String[maxVaults + 1];
+        for (int i = 1; i <= maxVaults; i++) {
+            vaultNodes[i] = (VAULT_NODE_PREFIX + i).intern();
+        }
+        Map<String, Integer> tiers = config.getSlotTiers();
+        String[] tierNodes = new String[tiers.size()];
+        int[] tierSlots = new int[tiers.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : tiers.entrySet()) {
+            tierNodes[i] = entry.getKey().intern();
+            tierSlots[i] = entry.getValue();
+            i++;
+        }
+        return new Nodes(maxVaults, config.getSlotsPerVault(), vaultNodes, tierNodes, tierSlots);
+    }
+
+    /**
+     * A player's resolved vault entitlements.
+     *
+     * @param wildcard   Whether the player has hytalevault.vault.*
+     * @param firstVault Whether the player may open vault 1
+     * @param maxVault   The highest vault number the player can access
+     * @param slots      Slots per vault for this player
+     * @param expiresAt  {@link System#nanoTime()} after which the entry is resolved again
+     */
+    public record Entitlements(boolean wildcard, boolean firstVault, int maxVault, int slots, long expiresAt) {
+
+        /**
+         * Check whether these entitlements include a vault number.
+         */
+        public boolean canAccess(int vaultNumber) {
+            if (vaultNumber == 1) {
+                return firstVault;
+            }
+            return vaultNumber > 1 && (wildcard || vaultNumber <= maxVault);
+        }
+    }
+
+    /**
+     * Permission nodes for the current config.
+     */
+    private record Nodes(int maxVaults, int defaultSlots, String[] vaultNodes, String[] tierNodes, int[] tierSlots) {
+    }
+}
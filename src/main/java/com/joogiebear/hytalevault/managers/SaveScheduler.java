@@ -0,0 +1,207 @@
+package com.joogiebear.hytalevault.managers;
+
+import com.joogiebear.hytalevault.data.PlayerVault;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Coalescing save scheduler.
+ * Holds at most one in-flight save and one pending save per player UUID.
+ * Saves requested while one is pending merge into it, and a pending save
+ * waits out the debounce window before it is written.
+ *
+ * The writer is never called while holding a slot's monitor: it does file
+ * I/O and may run on the calling thread when the storage queue is full.
+ */
+public class SaveScheduler {
+
+    private final Function<PlayerVault, CompletableFuture<Void>> writer;
+    private final LongSupplier debounceMillis;
+    private final ScheduledExecutorService timer;
+    private final Map<UUID, SaveSlot> slots;
+
+    /**
+     * Create a new save scheduler.
+     *
+     * @param writer         Performs the actual save of a vault
+     * @param debounceMillis Supplies the current debounce window in milliseconds
+     */
+    public SaveScheduler(Function<PlayerVault, CompletableFuture<Void>> writer, LongSupplier debounceMillis) {
+        this.writer = writer;
+        this.debounceMillis = debounceMillis;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "HytaleVault-SaveScheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.slots = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Schedule a debounced save.
+     *
+     * @param vault The vault to save
+     * @return A future that completes when a save covering this request has finished
+     */
+    public CompletableFuture<Void> schedule(PlayerVault vault) {
+        return schedule(vault, false);
+    }
+
+    /**
+     * Schedule a save.
+     *
+     * @param vault     The vault to save
+     * @param immediate Skip the debounce window (disconnect, shutdown, admin actions)
+     * @return A future that completes when a save covering this request has finished
+     */
+    public CompletableFuture<Void> schedule(PlayerVault vault, boolean immediate) {
+        UUID playerUuid = vault.getPlayerUuid();
+        while (true) {
+            SaveSlot slot = slots.computeIfAbsent(playerUuid, SaveSlot::new);
+            CompletableFuture<Void> pending;
+            boolean fireNow = false;
+            synchronized (slot) {
+                if (slot.retired) {
+                    // Lost a race with release(); pick up the replacement slot
+                    continue;
+                }
+                slot.vault = vault;
+                pending = slot.pending;
+                if (pending == null) {
+                    pending = new CompletableFuture<>();
+                    slot.pending = pending;
+                    long delay = immediate ? 0 : debounceMillis.getAsLong();
+                    if (delay > 0) {
+                        slot.timer = timer.schedule(() -> fire(slot), delay, TimeUnit.MILLISECONDS);
+                    } else {
+                        fireNow = true;
+                    }
+                } else if (immediate && slot.timer != null) {
+                    slot.timer.cancel(false);
+                    slot.timer = null;
+                    fireNow = true;
+                }
+            }
+            if (fireNow) {
+                fire(slot);
+            }
+            return pending;
+        }
+    }
+
+    /**
+     * Start every pending save now, skipping the remaining debounce window.
+     */
+    public void flushAll() {
+        for (SaveSlot slot : slots.values()) {
+            boolean fireNow = false;
+            synchronized (slot) {
+                if (slot.pending != null && slot.timer != null) {
+                    slot.timer.cancel(false);
+                    slot.timer = null;
+                    fireNow = true;
+                }
+            }
+            if (fireNow) {
+                fire(slot);
+            }
+        }
+    }
+
+    /**
+     * Get the number of players with a save pending or in flight.
+     */
+    public int getActiveCount() {
+        return slots.size();
+    }
+
+    public void shutdown() {
+        flushAll();
+        timer.shutdown();
+    }
+
+    private void fire(SaveSlot slot) {
+        CompletableFuture<Void> pending;
+        CompletableFuture<Void> write;
+        PlayerVault vault;
+        synchronized (slot) {
+            if (slot.pending == null || slot.retired) {
+                return;
+            }
+            if (slot.inFlight != null && !slot.inFlight.isDone()) {
+                // One write at a time per player; go again as soon as the current one finishes
+                if (!slot.chained) {
+                    slot.chained = true;
+                    slot.inFlight.whenComplete((result, error) -> fire(slot));
+                }
+                return;
+            }
+
+            pending = slot.pending;
+            slot.pending = null;
+            slot.timer = null;
+            slot.chained = false;
+            vault = slot.vault;
+
+            // Claim the in-flight position before releasing the monitor
+            write = new CompletableFuture<>();
+            slot.inFlight = write;
+        }
+
+        write.whenComplete((result, error) -> {
+            if (error != null) {
+                pending.completeExceptionally(error);
+            } else {
+                pending.complete(null);
+            }
+            release(slot);
+        });
+        try {
+            writer.apply(vault).whenComplete((result, error) -> {
+                if (error != null) {
+                    write.completeExceptionally(error);
+                } else {
+                    write.complete(null);
+                }
+            });
+        } catch (RuntimeException e) {
+            write.completeExceptionally(e);
+        }
+    }
+
+    private void release(SaveSlot slot) {
+        synchronized (slot) {
+            if (slot.pending != null || (slot.inFlight != null && !slot.inFlight.isDone())) {
+                return;
+            }
+            slot.retired = true;
+            slots.remove(slot.playerUuid, slot);
+        }
+    }
+
+    /**
+     * Per-player save state. Guarded by its own monitor.
+     */
+    private static final class SaveSlot {
+        private final UUID playerUuid;
+        private PlayerVault vault;
+        private CompletableFuture<Void> pending;
+        private CompletableFuture<Void> inFlight;
+        private ScheduledFuture<?> timer;
+        private boolean chained;
+        private boolean retired;
+
+        private SaveSlot(UUID playerUuid) {
+            this.playerUuid = playerUuid;
+        }
+    }
+}
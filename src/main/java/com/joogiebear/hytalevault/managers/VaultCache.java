@@ -0,0 +1,264 @@
+package com.joogiebear.hytalevault.managers;
+
+import com.joogiebear.hytalevault.data.PlayerVault;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Two-tier cache of loaded vaults.
+ * Vaults of online players are pinned and never evicted. Vaults loaded for
+ * offline players (admin tools, API lookups) live in a bounded LRU limited by
+ * entry count and an estimated byte weight. Dirty entries are flushed before
+ * they leave memory; one whose flush fails stays readable and is retried by
+ * {@link #retryFailedFlushes()} rather than re-entering the LRU, so a
+ * persistent I/O error cannot turn eviction into a loop of failing saves.
+ */
+public class VaultCache {
+
+    private static final Logger LOGGER = Logger.getLogger("HytaleVault");
+
+    // Rough heap cost of a vault shell and of each stored item, used for the byte bound
+    private static final long BASE_WEIGHT = 512;
+    private static final long ITEM_WEIGHT = 192;
+
+    private final Function<PlayerVault, CompletableFuture<Void>> flusher;
+    private final IntSupplier maxOfflineEntries;
+    private final LongSupplier maxOfflineBytes;
+
+    private final Map<UUID, PlayerVault> pinned;
+    private final LinkedHashMap<UUID, OfflineEntry> offline; // guarded by this
+    private final Map<UUID, PlayerVault> evicting;
+    private final Map<UUID, PlayerVault> failedFlushes;
+    private long offlineBytes; // guarded by this
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+
+    /**
+     * Create a new vault cache.
+     *
+     * @param flusher           Saves a dirty vault before it is evicted
+     * @param maxOfflineEntries Supplies the maximum number of offline entries
+     * @param maxOfflineBytes   Supplies the maximum estimated size of offline entries in bytes
+     */
+    public VaultCache(Function<PlayerVault, CompletableFuture<Void>> flusher,
+                      IntSupplier maxOfflineEntries, LongSupplier maxOfflineBytes) {
+        this.flusher = flusher;
+        this.maxOfflineEntries = maxOfflineEntries;
+        this.maxOfflineBytes = maxOfflineBytes;
+        this.pinned = new ConcurrentHashMap<>();
+        this.offline = new LinkedHashMap<>(64, 0.75f, true);
+        this.evicting = new ConcurrentHashMap<>();
+        this.failedFlushes = new ConcurrentHashMap<>();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+    }
+
+    /**
+     * Look up a vault, counting a hit or miss and refreshing its LRU position.
+     */
+    public PlayerVault get(UUID playerUuid) {
+        PlayerVault vault = lookup(playerUuid);
+        if (vault != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return vault;
+    }
+
+    /**
+     * Look up a vault without counting a hit or miss.
+     */
+    public PlayerVault peek(UUID playerUuid) {
+        return lookup(playerUuid);
+    }
+
+    public boolean contains(UUID playerUuid) {
+        return peek(playerUuid) != null;
+    }
+
+    /**
+     * Pin a vault for an online player. Pinned vaults are never evicted.
+     */
+    public void pin(UUID playerUuid, PlayerVault vault) {
+        pinned.put(playerUuid, vault);
+        synchronized (this) {
+            OfflineEntry entry = offline.remove(playerUuid);
+            if (entry != null) {
+                offlineBytes -= entry.weight;
+            }
+        }
+        evicting.remove(playerUuid, vault);
+        failedFlushes.remove(playerUuid, vault);
+    }
+
+    /**
+     * Add a vault to the offline tier, unless it is already pinned.
+     */
+    public void putOffline(UUID playerUuid, PlayerVault vault) {
+        if (pinned.containsKey(playerUuid)) {
+            return;
+        }
+        List<PlayerVault> evicted;
+        synchronized (this) {
+            OfflineEntry previous = offline.put(playerUuid, new OfflineEntry(vault, estimateWeight(vault)));
+            if (previous != null) {
+                offlineBytes -= previous.weight;
+            }
+            offlineBytes += offline.get(playerUuid).weight;
+            evicted = evictOverflow();
+        }
+        flushEvicted(evicted);
+    }
+
+    /**
+     * Move a vault from the pinned tier to the offline LRU (player disconnected).
+     */
+    public void unpin(UUID playerUuid) {
+        PlayerVault vault = pinned.remove(playerUuid);
+        if (vault != null) {
+            putOffline(playerUuid, vault);
+        }
+    }
+
+    /**
+     * Remove a vault from every tier.
+     */
+    public void remove(UUID playerUuid) {
+        pinned.remove(playerUuid);
+        synchronized (this) {
+            OfflineEntry entry = offline.remove(playerUuid);
+            if (entry != null) {
+                offlineBytes -= entry.weight;
+            }
+        }
+        evicting.remove(playerUuid);
+        failedFlushes.remove(playerUuid);
+    }
+
+    /**
+     * Flush evicted vaults whose earlier flush failed, and release those saved
+     * since by other means. Called once per autosave, which paces the retries.
+     */
+    public void retryFailedFlushes() {
+        List<PlayerVault> retry = new ArrayList<>();
+        for (Map.Entry<UUID, PlayerVault> entry : failedFlushes.entrySet()) {
+            PlayerVault vault = entry.getValue();
+            if (!failedFlushes.remove(entry.getKey(), vault)) {
+                continue;
+            }
+            if (vault.isDirty()) {
+                retry.add(vault);
+            } else {
+                evicting.remove(entry.getKey(), vault);
+            }
+        }
+        flushEvicted(retry);
+    }
+
+    /**
+     * Snapshot of every cached vault across all tiers.
+     */
+    public Collection<PlayerVault> values() {
+        List<PlayerVault> values = new ArrayList<>(pinned.values());
+        synchronized (this) {
+            for (OfflineEntry entry : offline.values()) {
+                values.add(entry.vault);
+            }
+        }
+        values.addAll(evicting.values());
+        return values;
+    }
+
+    public void clear() {
+        pinned.clear();
+        synchronized (this) {
+            offline.clear();
+            offlineBytes = 0;
+        }
+        evicting.clear();
+        failedFlushes.clear();
+    }
+
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+    public int getPinnedCount() { return pinned.size(); }
+    public synchronized int getOfflineCount() { return offline.size(); }
+    public synchronized long getOfflineBytes() { return offlineBytes; }
+
+    private PlayerVault lookup(UUID playerUuid) {
+        PlayerVault vault = pinned.get(playerUuid);
+        if (vault != null) {
+            return vault;
+        }
+        synchronized (this) {
+            // LinkedHashMap in access order: get() moves the entry to the MRU end
+            OfflineEntry entry = offline.get(playerUuid);
+            if (entry != null) {
+                return entry.vault;
+            }
+        }
+        return evicting.get(playerUuid);
+    }
+
+    private List<PlayerVault> evictOverflow() {
+        List<PlayerVault> evicted = new ArrayList<>();
+        int maxEntries = Math.max(0, maxOfflineEntries.getAsInt());
+        long maxBytes = Math.max(0, maxOfflineBytes.getAsLong());
+        Iterator<Map.Entry<UUID, OfflineEntry>> iterator = offline.entrySet().iterator();
+        while (iterator.hasNext() && (offline.size() > maxEntries || offlineBytes > maxBytes)) {
+            Map.Entry<UUID, OfflineEntry> eldest = iterator.next();
+            iterator.remove();
+            offlineBytes -= eldest.getValue().weight;
+            evictions.increment();
+            PlayerVault vault = eldest.getValue().vault;
+            if (vault.isDirty()) {
+                // Keep it reachable until the flush lands so readers never see stale disk data
+                evicting.put(eldest.getKey(), vault);
+                evicted.add(vault);
+            }
+        }
+        return evicted;
+    }
+
+    private void flushEvicted(List<PlayerVault> evicted) {
+        for (PlayerVault vault : evicted) {
+            UUID playerUuid = vault.getPlayerUuid();
+            flusher.apply(vault).whenComplete((result, error) -> {
+                if (error != null) {
+                    // Keep it readable and retry later; re-inserting it would evict (and flush) the next entry
+                    LOGGER.warning("Failed to flush evicted vault for " + playerUuid + ": " + error.getMessage());
+                    if (evicting.get(playerUuid) == vault) {
+                        failedFlushes.put(playerUuid, vault);
+                    }
+                } else {
+                    evicting.remove(playerUuid, vault);
+                }
+            });
+        }
+    }
+
+    private static long estimateWeight(PlayerVault vault) {
+        return BASE_WEIGHT + (long) vault.getTotalItemCount() * ITEM_WEIGHT;
+    }
+
+    private record OfflineEntry(PlayerVault vault, long weight) {
+    }
+}
@@ -1,14 +1,35 @@
 package com.joogiebear.hytalevault.managers;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 import com.hypixel.hytale.server.core.entity.entities.Player;
 import com.joogiebear.hytalevault.HytaleVaultPlugin;
+import com.hypixel.hytale.server.core.inventory.ItemStack;
 import com.joogiebear.hytalevault.data.PlayerVault;
+import com.joogiebear.hytalevault.data.storage.SlotJournal;
 import com.joogiebear.hytalevault.data.storage.StorageBackend;
+import com.joogiebear.hytalevault.data.storage.StorageExecutor;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -21,101 +42,457 @@ public class VaultManager {
 
     private final HytaleVaultPlugin plugin;
     private final StorageBackend storage;
-    private final Map<UUID, PlayerVault> vaultCache;
+    private final SlotJournal journal;
+    private final SaveScheduler saveScheduler;
+    private final VaultCache vaultCache;
+    private final EntitlementCache entitlements;
+    private final StorageExecutor storageExecutor;
+    private final Map<UUID, CompletableFuture<PlayerVault>> inFlightLoads;
+    private final Map<UUID, StorageExecutor.Submission> loadSubmissions;
+    private final Map<UUID, Long> joinTimes;
+    private final Set<UUID> onlinePlayers;
+    private final LongAdder firstOpens;
+    private final LongAdder firstOpenNanos;
+    private final AtomicLong maxFirstOpenNanos;
 
-    public VaultManager(HytaleVaultPlugin plugin, StorageBackend storage) {
+    public VaultManager(HytaleVaultPlugin plugin, StorageBackend storage, SlotJournal journal) {
         this.plugin = plugin;
         this.storage = storage;
-        this.vaultCache = new ConcurrentHashMap<>();
+        this.journal = journal;
+        this.storageExecutor = plugin.getStorageExecutor();
+        this.saveScheduler = new SaveScheduler(this::writeVault,
+                () -> plugin.getConfigManager().getSaveDebounceMillis());
+        this.vaultCache = new VaultCache(this::saveVaultNow,
+                () -> plugin.getConfigManager().getOfflineCacheSize(),
+                () -> plugin.getConfigManager().getOfflineCacheMaxMegabytes() * 1024L * 1024L);
+        this.entitlements = new EntitlementCache(plugin.getConfigManager());
+        this.inFlightLoads = new ConcurrentHashMap<>();
+        this.loadSubmissions = new ConcurrentHashMap<>();
+        this.joinTimes = new ConcurrentHashMap<>();
+        this.onlinePlayers = ConcurrentHashMap.newKeySet();
+        this.firstOpens = new LongAdder();
+        this.firstOpenNanos = new LongAdder();
+        this.maxFirstOpenNanos = new AtomicLong();
     }
 
+    /**
+     * Get an online player's vault. The vault is pinned in the cache until the player disconnects.
+     * If a prefetch for this player is still running, this waits on it instead of starting another load.
+     */
     public CompletableFuture<PlayerVault> getVault(Player player) {
-        return getVault(player.getUuid());
+        return getVault(player, StorageExecutor.Priority.INTERACTIVE);
+    }
+
+    /**
+     * Start loading a joining player's vault ahead of their first /vault,
+     * ahead of any background work queued for storage.
+     */
+    public CompletableFuture<PlayerVault> prefetch(Player player) {
+        onlinePlayers.add(player.getUuid());
+        joinTimes.put(player.getUuid(), System.nanoTime());
+        return getVault(player, StorageExecutor.Priority.LOGIN);
+    }
+
+    private CompletableFuture<PlayerVault> getVault(Player player, StorageExecutor.Priority priority) {
+        UUID playerUuid = player.getUuid();
+        return getVault(playerUuid, priority).thenApply(vault -> {
+            vaultCache.pin(playerUuid, vault);
+            return vault;
+        });
     }
 
+    /**
+     * Get a player's vault, loading it if needed.
+     * Concurrent callers for the same player share a single in-flight load,
+     * so there is only ever one PlayerVault instance per player.
+     */
     public CompletableFuture<PlayerVault> getVault(UUID playerUuid) {
+        return getVault(playerUuid, StorageExecutor.Priority.INTERACTIVE);
+    }
+
+    /**
+     * Get a player's vault, loading it in the given storage lane if needed.
+     * Joining an in-flight load promotes it if this caller is more urgent.
+     *
+     * @param playerUuid The player's UUID
+     * @param priority   How urgently the caller needs the vault
+     */
+    public CompletableFuture<PlayerVault> getVault(UUID playerUuid, StorageExecutor.Priority priority) {
         PlayerVault cached = vaultCache.get(playerUuid);
         if (cached != null) {
             return CompletableFuture.completedFuture(cached);
         }
 
+        CompletableFuture<PlayerVault> created = new CompletableFuture<>();
+        CompletableFuture<PlayerVault> existing = inFlightLoads.putIfAbsent(playerUuid, created);
+        if (existing != null) {
+            StorageExecutor.Submission submission = loadSubmissions.get(playerUuid);
+            if (submission != null) {
+                submission.promote(priority);
+            }
+            return existing;
+        }
+
+        // Re-check: a load may have finished between the cache miss and claiming the slot
+        cached = vaultCache.peek(playerUuid);
+        if (cached != null) {
+            inFlightLoads.remove(playerUuid, created);
+            created.complete(cached);
+            return created;
+        }
+
         ConfigManager config = plugin.getConfigManager();
-        return storage.loadVault(playerUuid, config.getSlotsPerVault())
+        StorageExecutor.Submission submission = storageExecutor.submitting(priority);
+        CompletableFuture<PlayerVault> load;
+        try {
+            loadSubmissions.put(playerUuid, submission);
+            load = storage.loadVault(playerUuid, config.getSlotsPerVault());
+        } finally {
+            submission.close();
+        }
+        load
                 .thenApply(vault -> {
-                    vaultCache.put(playerUuid, vault);
+                    vault.ensureCapacity(config.getMaxVaults());
+                    // Apply slot changes that never made it into the snapshot (crash recovery)
+                    int replayed = journal.replay(vault);
+                    if (replayed > 0) {
+                        LOGGER.info("Replayed " + replayed + " journaled slot changes for " + playerUuid);
+                    }
+                    vaultCache.putOffline(playerUuid, vault);
                     return vault;
+                })
+                .whenComplete((vault, error) -> {
+                    // Publish to the cache before releasing the slot so no caller can start a second load
+                    loadSubmissions.remove(playerUuid, submission);
+                    inFlightLoads.remove(playerUuid, created);
+                    if (error != null) {
+                        created.completeExceptionally(error);
+                    } else {
+                        created.complete(vault);
+                    }
                 });
+        return created;
+    }
+
+    /**
+     * Record that a player opened a vault, for the time-to-first-open metric.
+     * Only the first open after joining is counted.
+     */
+    public void recordVaultOpened(UUID playerUuid) {
+        Long joinedAt = joinTimes.remove(playerUuid);
+        if (joinedAt == null) {
+            return;
+        }
+        long elapsed = System.nanoTime() - joinedAt;
+        firstOpens.increment();
+        firstOpenNanos.add(elapsed);
+        maxFirstOpenNanos.accumulateAndGet(elapsed, Math::max);
+    }
+
+    /**
+     * Get how many players opened a vault since joining.
+     */
+    public long getFirstOpenCount() {
+        return firstOpens.sum();
+    }
+
+    /**
+     * Get the average time from join to first vault open, in milliseconds.
+     */
+    public long getAverageFirstOpenMillis() {
+        long count = firstOpens.sum();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(firstOpenNanos.sum() / count);
+    }
+
+    /**
+     * Get the longest time from join to first vault open, in milliseconds.
+     */
+    public long getMaxFirstOpenMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxFirstOpenNanos.get());
     }
 
     public PlayerVault getCachedVault(UUID playerUuid) {
-        return vaultCache.get(playerUuid);
+        return vaultCache.peek(playerUuid);
     }
 
     public boolean isVaultCached(UUID playerUuid) {
-        return vaultCache.containsKey(playerUuid);
+        return vaultCache.contains(playerUuid);
+    }
+
+    /**
+     * Get the vault cache (for hit/miss/eviction statistics).
+     */
+    public VaultCache getCache() {
+        return vaultCache;
     }
 
     public CompletableFuture<Void> saveVault(UUID playerUuid) {
-        PlayerVault vault = vaultCache.get(playerUuid);
-        if (vault == null || !vault.isDirty()) {
+        return saveVault(vaultCache.peek(playerUuid));
+    }
+
+    /**
+     * Save a vault through the coalescing scheduler.
+     * Back-to-back saves of the same player within the debounce window share one write.
+     */
+    public CompletableFuture<Void> saveVault(PlayerVault vault) {
+        if (!needsSave(vault)) {
             return CompletableFuture.completedFuture(null);
         }
-        return storage.saveVault(vault);
+        return saveScheduler.schedule(vault);
     }
 
-    public CompletableFuture<Void> saveVault(PlayerVault vault) {
-        if (vault == null || !vault.isDirty()) {
+    /**
+     * Save a vault without waiting out the debounce window.
+     * Still merges with a pending save and waits for an in-flight one.
+     */
+    public CompletableFuture<Void> saveVaultNow(PlayerVault vault) {
+        if (!needsSave(vault)) {
             return CompletableFuture.completedFuture(null);
         }
-        return storage.saveVault(vault);
+        return saveScheduler.schedule(vault, true);
+    }
+
+    private boolean needsSave(PlayerVault vault) {
+        return vault != null && (vault.isDirty() || journal.hasPending(vault.getPlayerUuid()));
+    }
+
+    /**
+     * Write a full snapshot of the vault and fold its slot journal into it.
+     * The journal is sealed before the write and only discarded once the write succeeds.
+     * Only called by the save scheduler, which guarantees one write per player at a time.
+     */
+    private CompletableFuture<Void> writeVault(PlayerVault vault) {
+        UUID playerUuid = vault.getPlayerUuid();
+        if (!vault.isDirty() && !journal.hasPending(playerUuid)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            journal.rotate(playerUuid);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to rotate slot journal for " + playerUuid, e);
+        }
+        return storage.saveVault(vault).thenRun(() -> journal.commit(playerUuid));
+    }
+
+    /**
+     * Record a single slot change. The change is appended to the player's slot
+     * journal right away; the full snapshot is rewritten later by the compactor.
+     *
+     * @param vault       The vault that changed
+     * @param vaultNumber The vault number (1-indexed)
+     * @param slot        The slot index
+     * @param item        The new item, or null if the slot was cleared
+     */
+    public void recordSlotChange(PlayerVault vault, int vaultNumber, int slot, ItemStack item) {
+        // The page itself is already marked dirty by the slot update
+        try {
+            journal.append(vault.getPlayerUuid(), vaultNumber, slot, item);
+        } catch (IOException e) {
+            // Journal unavailable - fall back to a full save so the change isn't lost
+            LOGGER.log(Level.WARNING, "Failed to journal slot change for " + vault.getPlayerUuid(), e);
+            saveVault(vault);
+        }
+    }
+
+    /**
+     * Record the slot changes from one user action as a single journal append.
+     *
+     * @param vault        The vault that changed
+     * @param vaultNumber  The vault number (1-indexed)
+     * @param changedSlots The slots that changed
+     * @param items        Supplies the new item for each slot (null if cleared)
+     */
+    public void recordSlotChanges(PlayerVault vault, int vaultNumber, BitSet changedSlots, IntFunction<ItemStack> items) {
+        try {
+            journal.appendAll(vault.getPlayerUuid(), vaultNumber, changedSlots, items);
+        } catch (IOException e) {
+            // Journal unavailable - fall back to a full save so the changes aren't lost
+            LOGGER.log(Level.WARNING, "Failed to journal slot changes for " + vault.getPlayerUuid(), e);
+            saveVault(vault);
+        }
+    }
+
+    /**
+     * Fold pending slot journals into their snapshot files.
+     * Called periodically by the plugin's background compactor.
+     */
+    public void compactJournals() {
+        for (UUID playerUuid : journal.getPendingPlayers()) {
+            PlayerVault vault = vaultCache.peek(playerUuid);
+            if (vault == null) {
+                continue;
+            }
+            saveVault(vault).exceptionally(e -> {
+                LOGGER.warning("Failed to compact slot journal for " + playerUuid + ": " + e.getMessage());
+                return null;
+            });
+        }
     }
 
+    /**
+     * Save a disconnecting player's vault and move it to the bounded offline tier.
+     */
     public CompletableFuture<Void> unloadVault(UUID playerUuid) {
-        PlayerVault vault = vaultCache.get(playerUuid);
+        onlinePlayers.remove(playerUuid);
+        joinTimes.remove(playerUuid);
+        entitlements.invalidate(playerUuid);
+        PlayerVault vault = vaultCache.peek(playerUuid);
         if (vault == null) {
             return CompletableFuture.completedFuture(null);
         }
-        return saveVault(vault).thenRun(() -> vaultCache.remove(playerUuid));
+        return saveVaultNow(vault).whenComplete((result, error) -> {
+            // Unpin even if the save failed (the vault stays dirty and is flushed again
+            // before eviction), but not if the player has reconnected in the meantime
+            if (onlinePlayers.contains(playerUuid)) {
+                return;
+            }
+            journal.close(playerUuid);
+            vaultCache.unpin(playerUuid);
+        });
     }
 
     public void saveAll() {
-        LOGGER.info("Saving all vaults...");
+        saveAll(0, false);
+    }
+
+    /**
+     * Save every loaded vault, fanning out with bounded parallelism.
+     * Progress and throughput (vaults/s) are logged while the save runs.
+     *
+     * @param deadlineMillis Hard time limit in milliseconds, or 0 for no limit
+     * @param emergencyDump  Write vaults still dirty at the deadline to an emergency dump file
+     */
+    public void saveAll(long deadlineMillis, boolean emergencyDump) {
+        List<PlayerVault> targets = new ArrayList<>();
         for (PlayerVault vault : vaultCache.values()) {
-            if (vault.isDirty()) {
-                storage.saveVault(vault).join();
+            if (needsSave(vault)) {
+                targets.add(vault);
             }
         }
-        LOGGER.info("All vaults saved.");
-    }
+        if (targets.isEmpty()) {
+            LOGGER.fine("No vaults to save.");
+            return;
+        }
 
-    public CompletableFuture<Void> clearVault(UUID playerUuid) {
-        return getVault(playerUuid).thenCompose(vault -> {
-            vault.clearAll();
-            return storage.saveVault(vault);
-        });
-    }
+        ConfigManager config = plugin.getConfigManager();
+        int parallelism = Math.max(1, config.getSaveAllParallelism());
+        LOGGER.info("Saving " + targets.size() + " vaults (parallelism " + parallelism + ")...");
 
-    public boolean hasVaultPermission(Player player, int vaultNumber) {
-        // Vault 1 is accessible by default
-        if (vaultNumber == 1) {
-            return player.hasPermission("hytalevault.vault.1", true);
+        long start = System.nanoTime();
+        long deadline = deadlineMillis > 0 ? start + TimeUnit.MILLISECONDS.toNanos(deadlineMillis) : Long.MAX_VALUE;
+        Semaphore permits = new Semaphore(parallelism);
+        AtomicInteger saved = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        List<CompletableFuture<Void>> futures = new ArrayList<>(targets.size());
+        SaveProgress progress = new SaveProgress(start, targets.size());
+        boolean timedOut = false;
+
+        try {
+            for (PlayerVault vault : targets) {
+                if (!permits.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    timedOut = true;
+                    break;
+                }
+                futures.add(saveVaultNow(vault).whenComplete((result, error) -> {
+                    if (error != null) {
+                        failed.incrementAndGet();
+                        LOGGER.warning("Failed to save vault for " + vault.getPlayerUuid() + ": " + error.getMessage());
+                    } else {
+                        saved.incrementAndGet();
+                    }
+                    permits.release();
+                }));
+                progress.report(saved.get());
+            }
+
+            CompletableFuture<Void> all = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+            while (!timedOut && !all.isDone()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    timedOut = true;
+                    break;
+                }
+                try {
+                    all.get(Math.min(remaining, TimeUnit.SECONDS.toNanos(1)), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    progress.report(saved.get());
+                } catch (ExecutionException e) {
+                    // Individual failures are already counted and logged
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            timedOut = true;
         }
 
-        // Check wildcard first
-        if (player.hasPermission("hytalevault.vault.*")) {
-            return true;
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        LOGGER.info("Saved " + saved.get() + "/" + targets.size() + " vaults in " + elapsedMillis + " ms ("
+                + String.format("%.1f", saved.get() * 1000.0 / elapsedMillis) + " vaults/s"
+                + (failed.get() > 0 ? ", " + failed.get() + " failed" : "") + ").");
+
+        if (timedOut) {
+            List<PlayerVault> unsaved = new ArrayList<>();
+            for (PlayerVault vault : targets) {
+                if (needsSave(vault)) {
+                    unsaved.add(vault);
+                }
+            }
+            LOGGER.warning("Save deadline of " + deadlineMillis + " ms passed with " + unsaved.size() + " vaults still unsaved.");
+            if (emergencyDump && !unsaved.isEmpty()) {
+                writeEmergencyDump(unsaved);
+            }
         }
+    }
 
-        // Tiered permissions: vault.5 grants access to vaults 1-5
-        // So for vault N, check if player has permission for any vault >= N
-        ConfigManager config = plugin.getConfigManager();
-        for (int i = vaultNumber; i <= config.getMaxVaults(); i++) {
-            if (player.hasPermission("hytalevault.vault." + i)) {
-                return true;
+    /**
+     * Dump vaults that could not be saved in time to a single file.
+     * Operators can restore players from it manually; the normal vault files are left untouched.
+     */
+    private void writeEmergencyDump(List<PlayerVault> vaults) {
+        Path dumpDirectory = plugin.getPluginDataPath().resolve("emergency");
+        Path dumpFile = dumpDirectory.resolve("emergency-" + System.currentTimeMillis() + ".json");
+
+        JsonArray vaultsArray = new JsonArray();
+        for (PlayerVault vault : vaults) {
+            try {
+                vaultsArray.add(vault.serialize());
+            } catch (Exception e) {
+                LOGGER.log(Level.SEVERE, "Failed to serialize vault for emergency dump: " + vault.getPlayerUuid(), e);
             }
         }
+        JsonObject json = new JsonObject();
+        json.addProperty("createdAt", System.currentTimeMillis());
+        json.add("vaults", vaultsArray);
 
-        return false;
+        try {
+            Files.createDirectories(dumpDirectory);
+            Files.writeString(dumpFile, json.toString());
+            LOGGER.severe("Wrote " + vaultsArray.size() + " unsaved vaults to emergency dump " + dumpFile);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to write emergency dump " + dumpFile, e);
+        }
+    }
+
+    public CompletableFuture<Void> clearVault(UUID playerUuid) {
+        // Admin action; never delays joining players
+        return getVault(playerUuid, StorageExecutor.Priority.BACKGROUND).thenCompose(vault -> {
+            vault.clearAll();
+            // Journal the clear so a failed save can't replay older entries back in
+            try {
+                journal.appendClear(playerUuid);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to journal vault clear for " + playerUuid, e);
+            }
+            return saveVaultNow(vault);
+        });
+    }
+
+    /**
+     * Check vault access. Tiered permissions: vault.5 grants access to vaults 1-5;
+     * vault 1 is accessible by default.
+     */
+    public boolean hasVaultPermission(Player player, int vaultNumber) {
+        return entitlements.get(player).canAccess(vaultNumber);
     }
 
     /**
@@ -123,38 +500,64 @@ public class VaultManager {
      * If no slot tiers are configured, returns the global slotsPerVault value.
      */
     public int getSlotsForPlayer(Player player) {
-        ConfigManager config = plugin.getConfigManager();
-        Map<String, Integer> tiers = config.getSlotTiers();
-        if (tiers.isEmpty()) {
-            return config.getSlotsPerVault();
-        }
-        int maxSlots = 0;
-        for (Map.Entry<String, Integer> entry : tiers.entrySet()) {
-            if (player.hasPermission(entry.getKey()) && entry.getValue() > maxSlots) {
-                maxSlots = entry.getValue();
-            }
-        }
-        return maxSlots > 0 ? maxSlots : config.getSlotsPerVault();
+        return entitlements.get(player).slots();
     }
 
     public int getMaxAccessibleVault(Player player) {
-        ConfigManager config = plugin.getConfigManager();
+        return entitlements.get(player).maxVault();
+    }
 
-        if (player.hasPermission("hytalevault.vault.*")) {
-            return config.getMaxVaults();
-        }
+    /**
+     * Get a player's resolved (cached) permission entitlements.
+     */
+    public EntitlementCache.Entitlements getEntitlements(Player player) {
+        return entitlements.get(player);
+    }
 
-        // Find the highest vault permission (tiered system)
-        for (int i = config.getMaxVaults(); i >= 2; i--) {
-            if (player.hasPermission("hytalevault.vault." + i)) {
-                return i;
-            }
-        }
-        return 1;
+    /**
+     * Re-resolve a player's permissions on next use (call after changing them).
+     */
+    public void invalidateEntitlements(UUID playerUuid) {
+        entitlements.invalidate(playerUuid);
+    }
+
+    /**
+     * Re-resolve every player's permissions on next use (e.g. after a config reload).
+     */
+    public void invalidateAllEntitlements() {
+        entitlements.invalidateAll();
     }
 
     public void shutdown() {
-        saveAll();
+        long deadlineMillis = plugin.getConfigManager().getShutdownDeadlineSeconds() * 1000L;
+        saveAll(deadlineMillis, true);
+        saveScheduler.shutdown();
         vaultCache.clear();
     }
+
+    /**
+     * Throttled progress logging for saveAll.
+     */
+    private static final class SaveProgress {
+        private final long start;
+        private final int total;
+        private long lastReport;
+
+        private SaveProgress(long start, int total) {
+            this.start = start;
+            this.total = total;
+            this.lastReport = start;
+        }
+
+        private void report(int saved) {
+            long now = System.nanoTime();
+            if (now - lastReport < TimeUnit.SECONDS.toNanos(1)) {
+                return;
+            }
+            lastReport = now;
+            double seconds = (now - start) / 1_000_000_000.0;
+            LOGGER.info("Saving vaults: " + saved + "/" + total + " ("
+                    + String.format("%.1f", saved / seconds) + " vaults/s)");
+        }
+    }
 }
@@ -0,0 +1,12 @@
+package com.joogiebear.hytalevault.util;
+
+/**
+ * Consumer of an int key and an object value, without boxing the key.
+ *
+ * @param <T> The value type
+ */
+@FunctionalInterface
+public interface IntObjConsumer<T> {
+
+    void accept(int key, T value);
+}
@@ -0,0 +1,112 @@
+package com.joogiebear.hytalevault.data;
+
+import com.hypixel.hytale.server.core.inventory.ItemStack;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Serialize-during-edit behaviour of {@link VaultPage} and {@link PlayerVault}:
+ * snapshots taken while another thread writes, and clearing only what was saved.
+ */
+class VaultPageTest {
+
+    private static final int SLOTS = 54;
+    private static final int WRITES = 200_000;
+
+    @Test
+    void snapshotTakenDuringWritesIsConsistentImage() throws Exception {
+        PlayerVault vault = new PlayerVault(UUID.randomUUID(), SLOTS);
+        VaultPage page = vault.getOrCreateVault(1, SLOTS);
+        long baseModCount = page.getModCount();
+
+        // Write k puts an item of quantity k into slot k % SLOTS, so every
+        // modification count maps to exactly one expected page image
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> writerError = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            try {
+                for (int k = 1; k <= WRITES; k++) {
+                    page.setItem(k % SLOTS, new ItemStack("Test_Item", k));
+                }
+            } catch (Throwable t) {
+                writerError.set(t);
+            } finally {
+                done.set(true);
+            }
+        });
+        writer.start();
+
+        int snapshots = 0;
+        while (!done.get() || snapshots == 0) {
+            VaultSnapshot snapshot = vault.snapshot();
+            assertConsistent(snapshot.getPages().get(0), baseModCount);
+            snapshots++;
+        }
+        writer.join();
+        assertNull(writerError.get());
+        assertConsistent(vault.snapshot().getPages().get(0), baseModCount);
+    }
+
+    @Test
+    void markCleanFailsWhenWriteLandsMidSave() {
+        VaultPage page = new VaultPage(1, SLOTS);
+        page.setItem(0, new ItemStack("Test_Item", 1));
+
+        long expected = page.getModCount();
+        // Edit arrives while the save of `expected` is being written
+        page.setItem(1, new ItemStack("Test_Item", 2));
+
+        assertFalse(page.markClean(expected));
+        assertTrue(page.isDirty());
+        assertTrue(page.getDirtySlots().get(1));
+
+        assertTrue(page.markClean(page.getModCount()));
+        assertFalse(page.isDirty());
+    }
+
+    @Test
+    void vaultMarkCleanKeepsPagesEditedAfterSnapshotDirty() {
+        PlayerVault vault = new PlayerVault(UUID.randomUUID(), SLOTS);
+        VaultPage first = vault.getOrCreateVault(1, SLOTS);
+        VaultPage second = vault.getOrCreateVault(2, SLOTS);
+        first.setItem(0, new ItemStack("Test_Item", 1));
+        second.setItem(0, new ItemStack("Test_Item", 1));
+
+        VaultSnapshot snapshot = vault.snapshot();
+        second.setItem(1, new ItemStack("Test_Item", 2));
+        vault.markClean(snapshot);
+
+        assertFalse(first.isDirty());
+        assertTrue(second.isDirty());
+        assertTrue(vault.isDirty());
+    }
+
+    /**
+     * Check that a snapshot equals the page image after exactly
+     * {@code generation - baseModCount} writes.
+     */
+    private static void assertConsistent(PageSnapshot snapshot, long baseModCount) {
+        long writes = snapshot.getGeneration() - baseModCount;
+        int occupied = 0;
+        for (int slot = 0; slot < SLOTS; slot++) {
+            // Latest write k <= writes with k % SLOTS == slot
+            long latest = writes - Math.floorMod(writes - slot, SLOTS);
+            ItemStack item = snapshot.getItem(slot);
+            if (latest < 1) {
+                assertNull(item, "slot " + slot + " written after the snapshot's generation");
+            } else {
+                occupied++;
+                assertEquals(latest, item.getQuantity(), "slot " + slot + " at generation " + writes);
+            }
+        }
+        assertEquals(occupied, snapshot.getItemCount());
+    }
+}
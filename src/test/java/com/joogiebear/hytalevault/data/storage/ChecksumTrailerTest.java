@@ -0,0 +1,125 @@
+package com.joogiebear.hytalevault.data.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Streaming checksum verification in {@link FileStorage#readChecked}: the
+ * trailer is held back from the decoder and checked at EOF, across buffer
+ * refills and for files written before trailers existed.
+ */
+class ChecksumTrailerTest {
+
+    // ChecksumTrailerInputStream refills in chunks of 8 KiB plus the trailer
+    private static final int CHUNK = 8192 + 16;
+
+    @TempDir
+    Path directory;
+
+    private final Random random = new Random(42);
+
+    @Test
+    void trailerSplitAcrossRefillIsStrippedAndVerified() throws IOException {
+        for (int size = CHUNK - 40; size <= CHUNK + 40; size++) {
+            byte[] content = randomBytes(size);
+            Path file = write(withTrailer(content));
+
+            assertArrayEquals(content, FileStorage.readChecked(file, InputStream::readAllBytes), "size " + size);
+            assertArrayEquals(content, FileStorage.readChecked(file, ChecksumTrailerTest::readByteByByte), "size " + size);
+        }
+    }
+
+    @Test
+    void legacyFileWithoutTrailerIsReturnedWhole() throws IOException {
+        for (int size : new int[]{0, 1, 15, 16, 17, CHUNK - 1, CHUNK, CHUNK + 1, 3 * CHUNK}) {
+            byte[] content = randomBytes(size);
+            Path file = write(content);
+
+            assertArrayEquals(content, FileStorage.readChecked(file, InputStream::readAllBytes), "size " + size);
+        }
+    }
+
+    @Test
+    void flippedContentByteFailsChecksum() throws IOException {
+        for (int size : new int[]{1, 100, CHUNK - 10, CHUNK + 10, 3 * CHUNK}) {
+            byte[] data = withTrailer(randomBytes(size));
+            data[size / 2] ^= 0x01;
+            Path file = write(data);
+
+            assertThrows(CorruptVaultException.class, () -> FileStorage.readChecked(file, InputStream::readAllBytes),
+                    "size " + size);
+        }
+    }
+
+    @Test
+    void truncatedTrailerIsCorrupt() throws IOException {
+        byte[] data = withTrailer(randomBytes(CHUNK));
+        // Cut inside the checksum digits; the prefix survives
+        for (int cut = 1; cut <= 9; cut++) {
+            Path file = write(Arrays.copyOf(data, data.length - cut));
+
+            assertThrows(CorruptVaultException.class, () -> FileStorage.readChecked(file, InputStream::readAllBytes),
+                    "cut " + cut);
+        }
+    }
+
+    @Test
+    void decoderStoppingEarlyStillVerifiesTheRest() throws IOException {
+        byte[] content = randomBytes(3 * CHUNK);
+        byte[] data = withTrailer(content);
+        FileStorage.ContentReader<byte[]> firstBytes = in -> in.readNBytes(10);
+
+        assertArrayEquals(Arrays.copyOf(content, 10), FileStorage.readChecked(write(data), firstBytes));
+
+        // A flipped byte the decoder never reads is still caught by the drain
+        data[content.length - 1] ^= 0x01;
+        Path corrupt = write(data);
+        assertThrows(CorruptVaultException.class, () -> FileStorage.readChecked(corrupt, firstBytes));
+    }
+
+    private byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private Path write(byte[] data) throws IOException {
+        Path file = Files.createTempFile(directory, "vault", ".bin");
+        Files.write(file, data);
+        return file;
+    }
+
+    /**
+     * Append a trailer in the format FileStorage writes.
+     */
+    private static byte[] withTrailer(byte[] content) {
+        CRC32C crc = new CRC32C();
+        crc.update(content);
+        byte[] trailer = String.format("\n#HVCK %08x\n", crc.getValue()).getBytes(StandardCharsets.US_ASCII);
+        byte[] data = Arrays.copyOf(content, content.length + trailer.length);
+        System.arraycopy(trailer, 0, data, content.length, trailer.length);
+        return data;
+    }
+
+    private static byte[] readByteByByte(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) >= 0) {
+            out.write(b);
+        }
+        return out.toByteArray();
+    }
+}